@@ -0,0 +1,145 @@
+package DataBase;
+
+import models.Parada;
+import models.Ruta;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Nombre de la clase: CargaMasiva
+ *
+ * Objetivo:
+ * - Guardar redes grandes (decenas de miles de paradas y rutas) sin un viaje a la base por fila.
+ *   Las filas se mandan en lotes con addBatch/executeBatch, cada lote en su propia transacción,
+ *   y los ids generados se leen de una vez y se asignan a cada objeto para poder armar el Grafo en memoria.
+ *
+ * Nota:
+ * - Recibe cualquier Iterable (una lista, o un stream con stream::iterator): solo se guarda un lote en memoria.
+ * - Las rutas se guardan después de sus paradas (necesitan el id de inicio y destino).
+ * - Si un lote falla se deshace ese lote y se corta la carga; lo que ya se confirmó queda guardado
+ *   y el número que devuelven los métodos dice cuántas filas entraron.
+ * - La URL del pool activa reWriteBatchedInserts, así el driver manda cada lote como INSERT de varias filas.
+ */
+public class CargaMasiva {
+    public static final int TAMANO_LOTE = 1000;
+
+    private static CargaMasiva instance = null;
+
+    private CargaMasiva() { }
+
+    public static CargaMasiva getInstance() {
+        if (instance == null) {
+            instance = new CargaMasiva();
+        }
+        return instance;
+    }
+
+    /**
+     * guardarParadas
+     * Objetivo: insertar las paradas por lotes y asignarle a cada una su id generado.
+     * Retorno: int con la cantidad de paradas guardadas.
+     */
+    public int guardarParadas(Iterable<? extends Parada> paradas) {
+        final String sql = "INSERT INTO parada (\"nombre\", \"tipo\") VALUES (?, ?)";
+        return guardarPorLotes(sql, paradas.iterator(), (ps, parada) -> {
+            ps.setString(1, parada.getNombre());
+            ps.setString(2, parada.getTipo());
+        }, Parada::setId);
+    }
+
+    /**
+     * guardarRutas
+     * Objetivo: insertar las rutas por lotes y asignarle a cada una su id generado.
+     *           Las paradas de inicio y destino ya deben tener id (guardarParadas antes).
+     * Retorno: int con la cantidad de rutas guardadas.
+     */
+    public int guardarRutas(Iterable<? extends Ruta> rutas) {
+        final String sql = "INSERT INTO route (\"nombre\", \"inicio\", \"destino\", \"distancia\", \"tiempo\", \"costo\", \"estado\", \"evento\", \"transbordo\") " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        return guardarPorLotes(sql, rutas.iterator(), (ps, ruta) -> {
+            if (ruta.getInicio().getId() <= 0 || ruta.getDestino().getId() <= 0) {
+                throw new SQLException("La ruta " + ruta.getNombre() + " tiene paradas sin guardar");
+            }
+            ps.setString(1, ruta.getNombre());
+            ps.setLong(2, ruta.getInicio().getId());
+            ps.setLong(3, ruta.getDestino().getId());
+            ps.setDouble(4, ruta.getDistancia());
+            ps.setDouble(5, ruta.getTiempo());
+            ps.setDouble(6, ruta.getCosto());
+            ps.setBoolean(7, ruta.isEstado());
+            ps.setString(8, ruta.getEvento());
+            ps.setString(9, ruta.getTransbordo());
+        }, Ruta::setId);
+    }
+
+    /**
+     * guardarRed
+     * Objetivo: guardar primero todas las paradas y después todas las rutas.
+     * Retorno: int[] {paradas guardadas, rutas guardadas}.
+     */
+    public int[] guardarRed(Iterable<? extends Parada> paradas, Iterable<? extends Ruta> rutas) {
+        int guardadas = guardarParadas(paradas);
+        return new int[]{guardadas, guardarRutas(rutas)};
+    }
+
+    // Pasa los datos de un objeto a los parámetros del INSERT
+    private interface Llenador<T> {
+        void llenar(PreparedStatement ps, T objeto) throws SQLException;
+    }
+
+    // Recibe el id generado de un objeto
+    private interface AsignadorId<T> {
+        void asignar(T objeto, long id);
+    }
+
+    /**
+     * guardarPorLotes
+     * Objetivo: recorrer los objetos armando lotes de TAMANO_LOTE filas. Por lote: addBatch de cada fila,
+     *           executeBatch, leer los ids generados (vienen en el mismo orden) y commit.
+     * Retorno: int con la cantidad de filas confirmadas.
+     */
+    private <T> int guardarPorLotes(String sql, Iterator<? extends T> objetos, Llenador<T> llenador, AsignadorId<T> asignador) {
+        int guardados = 0;
+        List<T> lote = new ArrayList<>(TAMANO_LOTE);
+
+        try (Connection connection = DataBaseConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            connection.setAutoCommit(false);
+            try {
+                while (objetos.hasNext()) {
+                    lote.clear();
+                    while (objetos.hasNext() && lote.size() < TAMANO_LOTE) {
+                        T objeto = objetos.next();
+                        llenador.llenar(ps, objeto);
+                        ps.addBatch();
+                        lote.add(objeto);
+                    }
+
+                    ps.executeBatch();
+                    List<Long> ids = new ArrayList<>(lote.size());
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        while (rs.next()) ids.add(rs.getLong(1));
+                    }
+                    if (ids.size() != lote.size()) {
+                        throw new SQLException("Se esperaban " + lote.size() + " ids generados y llegaron " + ids.size());
+                    }
+                    connection.commit();
+
+                    for (int i = 0; i < lote.size(); i++) asignador.asignar(lote.get(i), ids.get(i));
+                    guardados += lote.size();
+                }
+            } catch (SQLException e) {
+                connection.rollback(); // Solo se pierde el lote que falló
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return guardados;
+    }
+}
@@ -0,0 +1,447 @@
+package DataBase;
+
+import models.Instantanea;
+import models.Parada;
+import models.Ruta;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Nombre de la clase: CargaRed
+ *
+ * Objetivo:
+ * - Leer la red completa (paradas y rutas) al iniciar sin armar mapas intermedios: cada fila que llega
+ *   se convierte en su objeto y la ruta se engancha de una vez en la lista de salida de su parada de inicio
+ *   y en las de entrada de su destino. El Grafo adopta ese mapa tal cual (Grafo.instalarRed).
+ * - Paradas y rutas se leen a la vez, cada una con su conexión del pool y su cursor en el servidor
+ *   (autocommit apagado + setFetchSize): el driver trae FILAS_POR_VIAJE filas por viaje en vez de todo el resultado.
+ *
+ * Nota:
+ * - Solo se piden las columnas que usa el Grafo.
+ * - Una ruta que llega antes que alguna de sus paradas queda en espera (solo sus valores) y se engancha
+ *   al terminar de leer las paradas. Si la parada no existe se ignora con log, igual que antes.
+ * - cargar() bloquea hasta terminar: se llama desde un hilo aparte (ver application.Main), nunca desde el de JavaFX.
+ * - Con una Instantanea guardada solo se piden las filas que cambiaron desde su marca: PostgreSQL anota en xmin
+ *   la transacción que escribió cada fila, y la marca es el horizonte de transacciones de la lectura anterior.
+ *   Las filas borradas se detectan comparando cuántas hay; solo si no cuadra se piden los ids.
+ */
+public class CargaRed {
+    public static final int FILAS_POR_VIAJE = 1000;
+
+    private static final String SQL_PARADAS = "SELECT id, nombre, tipo FROM parada";
+    private static final String SQL_RUTAS = "SELECT id, nombre, inicio, destino, distancia, tiempo, costo, estado, evento, transbordo FROM route";
+
+    // Transacción más antigua que seguía en curso: todo lo anterior ya es visible para las lecturas que vienen
+    private static final String SQL_MARCA = "SELECT txid_snapshot_xmin(txid_current_snapshot())";
+    // Fila escrita por una transacción igual o posterior a la marca (xmin es de 32 bits y da la vuelta: se compara en módulo 2^32)
+    private static final String CAMBIADA_DESDE = " WHERE ((xmin::text::bigint - ?) % 4294967296 + 4294967296) % 4294967296 < 2147483648";
+    // Solo cuentan las rutas con sus dos paradas: las demás tampoco están en memoria (se ignoran al cargar)
+    private static final String SQL_CUENTAS = "SELECT (SELECT count(*) FROM parada), (SELECT count(*) FROM route r " +
+            "JOIN parada i ON i.id = r.inicio JOIN parada d ON d.id = r.destino)";
+
+    private static CargaRed instance = null;
+
+    private CargaRed() { }
+
+    public static CargaRed getInstance() {
+        if (instance == null) {
+            instance = new CargaRed();
+        }
+        return instance;
+    }
+
+    /**
+     * Avisa cuántas filas se llevan leídas. Se llama desde los hilos de la carga
+     * (cada FILAS_POR_VIAJE filas y al final), no desde el de JavaFX.
+     */
+    public interface Progreso {
+        void avance(int paradasLeidas, int rutasLeidas);
+    }
+
+    /**
+     * Clase Resultado
+     * Propósito: la red leída, lista para que el Grafo la adopte.
+     */
+    public static class Resultado {
+        public final List<Parada> paradas;
+        public final Map<Parada, List<Ruta>> salientes; // todas las paradas, con o sin rutas
+        public final int rutas;
+        public final int rutasIgnoradas;
+        public final boolean completa; // false si alguna de las consultas falló a medio camino
+        public final long marca;       // horizonte de transacciones de esta lectura (-1 si no se pudo leer)
+        public final Instantanea instantanea; // si la red salió de una instantánea sin cambios (sus índices sirven)
+
+        public Resultado(List<Parada> paradas, Map<Parada, List<Ruta>> salientes, int rutas, int rutasIgnoradas,
+                         boolean completa, long marca, Instantanea instantanea) {
+            this.paradas = paradas;
+            this.salientes = salientes;
+            this.rutas = rutas;
+            this.rutasIgnoradas = rutasIgnoradas;
+            this.completa = completa;
+            this.marca = marca;
+            this.instantanea = instantanea;
+        }
+    }
+
+    // Valores de una ruta cuyas paradas todavía no se han leído
+    private static final class FilaRuta {
+        long id, inicio, destino;
+        String nombre, evento, transbordo;
+        double distancia, tiempo, costo;
+        boolean estado;
+    }
+
+    /**
+     * cargar
+     * Objetivo: leer paradas (en un hilo aparte) y rutas (en este) al mismo tiempo y armar la lista de adyacencia.
+     * Retorno: Resultado.
+     */
+    public Resultado cargar(Progreso progreso) {
+        Map<Long, Parada> porId = new ConcurrentHashMap<>();
+        List<Parada> paradas = new ArrayList<>();
+        AtomicInteger paradasLeidas = new AtomicInteger();
+        AtomicInteger rutasLeidas = new AtomicInteger();
+        Progreso aviso = progreso != null ? progreso : (p, r) -> { };
+
+        // La marca se toma antes de abrir los cursores: lo que escriba una transacción anterior lo verán los dos
+        long marca = -1;
+        try (Connection connection = DataBaseConnection.getConnection()) {
+            marca = leerMarca(connection);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        boolean[] paradasOk = new boolean[1];
+        Thread hiloParadas = new Thread(() ->
+                paradasOk[0] = leerParadas(porId, paradas, paradasLeidas, rutasLeidas, aviso), "carga-paradas");
+        hiloParadas.setDaemon(true);
+        hiloParadas.start();
+
+        Map<Parada, List<Ruta>> salientes = new HashMap<>();
+        List<FilaRuta> enEspera = new ArrayList<>();
+        int[] enganchadas = new int[1];
+        boolean rutasOk = true;
+
+        try (Connection connection = DataBaseConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SQL_RUTAS)) {
+            connection.setAutoCommit(false); // Sin esto PostgreSQL ignora el fetchSize y manda todo de una vez
+            ps.setFetchSize(FILAS_POR_VIAJE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    FilaRuta fila = leerFila(rs);
+                    if (!enganchar(fila, porId, salientes, enganchadas)) enEspera.add(fila);
+                    if (rutasLeidas.incrementAndGet() % FILAS_POR_VIAJE == 0) {
+                        aviso.avance(paradasLeidas.get(), rutasLeidas.get());
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            rutasOk = false;
+        }
+
+        try {
+            hiloParadas.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Resultado(new ArrayList<>(), new HashMap<>(), 0, 0, false, -1, null);
+        }
+
+        // Con todas las paradas leídas: las rutas que esperaban se enganchan o se descartan
+        int ignoradas = 0;
+        for (FilaRuta fila : enEspera) {
+            if (!enganchar(fila, porId, salientes, enganchadas)) {
+                ignoradas++;
+                avisarIgnorada(fila, porId);
+            }
+        }
+        for (Parada p : paradas) salientes.putIfAbsent(p, new ArrayList<>());
+
+        aviso.avance(paradasLeidas.get(), rutasLeidas.get());
+        return new Resultado(paradas, salientes, enganchadas[0], ignoradas, paradasOk[0] && rutasOk, marca, null);
+    }
+
+    /**
+     * cargar
+     * Objetivo: arrancar desde la instantánea si existe y se puede leer, pidiendo a la base solo lo que cambió
+     *           desde su marca. Sin archivo, o si está dañado, se hace la carga completa.
+     * Retorno: Resultado.
+     */
+    public Resultado cargar(Path archivo, Progreso progreso) {
+        if (archivo != null && Files.isRegularFile(archivo)) {
+            try {
+                return aplicarCambios(Instantanea.leer(archivo), progreso != null ? progreso : (p, r) -> { });
+            } catch (IOException e) {
+                e.printStackTrace(); // Otro formato o archivo cortado: se lee todo de la base
+            }
+        }
+        return cargar(progreso);
+    }
+
+    /**
+     * aplicarCambios
+     * Objetivo: traer, en una sola transacción REPEATABLE READ (todas las consultas ven la misma foto),
+     *           las paradas y rutas escritas desde la marca de la instantánea y aplicarlas sobre ella;
+     *           luego quitar las que se borraron. Si la base no responde se usa la instantánea tal cual.
+     * Retorno: Resultado (con la instantánea solo si no cambió nada).
+     */
+    private Resultado aplicarCambios(Instantanea instantanea, Progreso aviso) {
+        List<Parada> paradas = instantanea.getParadas();
+        Map<Parada, List<Ruta>> salientes = instantanea.getSalientes();
+        Map<Long, Parada> porId = new HashMap<>(paradas.size() * 2);
+        for (Parada p : paradas) porId.put(p.getId(), p);
+
+        int cambios = 0;
+        int ignoradas = 0;
+        long marca = instantanea.getMarca();
+        boolean completa = true;
+
+        try (Connection connection = DataBaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                long nuevaMarca = leerMarca(connection);
+
+                try (PreparedStatement ps = connection.prepareStatement(SQL_PARADAS + CAMBIADA_DESDE)) {
+                    ps.setLong(1, instantanea.getMarca());
+                    ps.setFetchSize(FILAS_POR_VIAJE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            cambios++;
+                            long id = rs.getLong(1);
+                            Parada p = porId.get(id);
+                            if (p == null) {
+                                p = new Parada(rs.getString(2), rs.getString(3));
+                                p.setId(id);
+                                porId.put(id, p);
+                                paradas.add(p);
+                                salientes.put(p, new ArrayList<>());
+                            } else {
+                                p.setNombre(rs.getString(2));
+                                if (!Objects.equals(p.getTipo(), rs.getString(3))) p.setTipo(rs.getString(3));
+                            }
+                        }
+                    }
+                }
+
+                List<FilaRuta> filas = new ArrayList<>();
+                try (PreparedStatement ps = connection.prepareStatement(SQL_RUTAS + CAMBIADA_DESDE)) {
+                    ps.setLong(1, instantanea.getMarca());
+                    ps.setFetchSize(FILAS_POR_VIAJE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) filas.add(leerFila(rs));
+                    }
+                }
+                if (!filas.isEmpty()) {
+                    Map<Long, Ruta> rutasPorId = new HashMap<>();
+                    for (List<Ruta> salida : salientes.values()) {
+                        for (Ruta r : salida) rutasPorId.put(r.getId(), r);
+                    }
+                    int[] enganchadas = new int[1];
+                    for (FilaRuta fila : filas) {
+                        cambios++;
+                        Ruta vieja = rutasPorId.get(fila.id);
+                        if (vieja != null) desenganchar(vieja, salientes);
+                        if (!enganchar(fila, porId, salientes, enganchadas)) {
+                            ignoradas++;
+                            avisarIgnorada(fila, porId);
+                        }
+                    }
+                }
+
+                // Borradas: si las cuentas cuadran no falta nada (lo que hay en memoria incluye todo lo vigente)
+                long paradasEnBase, rutasEnBase;
+                try (PreparedStatement ps = connection.prepareStatement(SQL_CUENTAS);
+                     ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    paradasEnBase = rs.getLong(1);
+                    rutasEnBase = rs.getLong(2);
+                }
+                if (paradasEnBase != paradas.size()) {
+                    cambios += quitarBorradas(connection, paradas, porId, salientes);
+                }
+                if (rutasEnBase != contarRutas(salientes)) {
+                    cambios += quitarRutasBorradas(connection, salientes);
+                }
+
+                connection.commit();
+                marca = nuevaMarca;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            completa = false; // Queda la instantánea (con lo que alcanzó a aplicarse) y su marca vieja
+            cambios++;
+        }
+
+        int rutas = contarRutas(salientes);
+        aviso.avance(paradas.size(), rutas);
+        return new Resultado(paradas, salientes, rutas, ignoradas, completa, marca, cambios == 0 ? instantanea : null);
+    }
+
+    /**
+     * quitarBorradas
+     * Objetivo: pedir los ids de parada vigentes y sacar las que ya no están, con todas sus rutas.
+     * Retorno: int con la cantidad de paradas quitadas.
+     */
+    private static int quitarBorradas(Connection connection, List<Parada> paradas, Map<Long, Parada> porId,
+                                      Map<Parada, List<Ruta>> salientes) throws SQLException {
+        Set<Long> vigentes = leerIds(connection, "SELECT id FROM parada");
+        Set<Parada> borradas = new HashSet<>();
+        for (Parada p : paradas) {
+            if (vigentes.contains(p.getId())) continue;
+            borradas.add(p);
+            for (Ruta r : new ArrayList<>(salientes.get(p))) desenganchar(r, salientes);
+            for (Ruta r : new ArrayList<>(p.getRutasDeEntrada())) desenganchar(r, salientes);
+            salientes.remove(p);
+            porId.remove(p.getId());
+        }
+        paradas.removeIf(borradas::contains);
+        return borradas.size();
+    }
+
+    /**
+     * quitarRutasBorradas
+     * Objetivo: pedir los ids de ruta vigentes y desenganchar las que ya no están.
+     * Retorno: int con la cantidad de rutas quitadas.
+     */
+    private static int quitarRutasBorradas(Connection connection, Map<Parada, List<Ruta>> salientes) throws SQLException {
+        Set<Long> vigentes = leerIds(connection, "SELECT id FROM route");
+        int quitadas = 0;
+        for (List<Ruta> salida : salientes.values()) {
+            for (int i = salida.size() - 1; i >= 0; i--) {
+                Ruta r = salida.get(i);
+                if (vigentes.contains(r.getId())) continue;
+                salida.remove(i);
+                r.getDestino().eliminarRutaDeEntrada(r);
+                quitadas++;
+            }
+        }
+        return quitadas;
+    }
+
+    private static Set<Long> leerIds(Connection connection, String sql) throws SQLException {
+        Set<Long> ids = new HashSet<>();
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setFetchSize(FILAS_POR_VIAJE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static long leerMarca(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SQL_MARCA);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static int contarRutas(Map<Parada, List<Ruta>> salientes) {
+        int total = 0;
+        for (List<Ruta> salida : salientes.values()) total += salida.size();
+        return total;
+    }
+
+    /**
+     * leerParadas
+     * Objetivo: recorrer el cursor de paradas publicando cada una en porId apenas se crea
+     *           (así el hilo de rutas puede engancharla sin esperar al final).
+     * Retorno: boolean (true si se leyó completo).
+     */
+    private boolean leerParadas(Map<Long, Parada> porId, List<Parada> paradas,
+                                AtomicInteger paradasLeidas, AtomicInteger rutasLeidas, Progreso aviso) {
+        try (Connection connection = DataBaseConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SQL_PARADAS)) {
+            connection.setAutoCommit(false);
+            ps.setFetchSize(FILAS_POR_VIAJE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Parada parada = new Parada(rs.getString(2), rs.getString(3));
+                    parada.setId(rs.getLong(1));
+                    paradas.add(parada);
+                    porId.put(parada.getId(), parada);
+                    if (paradasLeidas.incrementAndGet() % FILAS_POR_VIAJE == 0) {
+                        aviso.avance(paradasLeidas.get(), rutasLeidas.get());
+                    }
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static FilaRuta leerFila(ResultSet rs) throws SQLException {
+        FilaRuta fila = new FilaRuta();
+        fila.id = rs.getLong(1);
+        fila.nombre = rs.getString(2);
+        fila.inicio = rs.getLong(3);
+        fila.destino = rs.getLong(4);
+        fila.distancia = rs.getDouble(5);
+        fila.tiempo = rs.getDouble(6);
+        fila.costo = rs.getDouble(7);
+        fila.estado = rs.getBoolean(8);
+        fila.evento = rs.getString(9);
+        fila.transbordo = rs.getString(10);
+        return fila;
+    }
+
+    private static void avisarIgnorada(FilaRuta fila, Map<Long, Parada> porId) {
+        Parada inicio = porId.get(fila.inicio);
+        Parada destino = porId.get(fila.destino);
+        System.out.println("Ruta ignorada por tener parada inexistente: " + fila.nombre +
+                " | Inicio: " + (inicio != null ? inicio.getNombre() : "null") +
+                " | Destino: " + (destino != null ? destino.getNombre() : "null"));
+    }
+
+    /**
+     * desenganchar
+     * Objetivo: sacar una ruta de la salida de su inicio y de la entrada de su destino.
+     * Retorno: ninguno.
+     */
+    private static void desenganchar(Ruta ruta, Map<Parada, List<Ruta>> salientes) {
+        List<Ruta> salida = salientes.get(ruta.getInicio());
+        if (salida != null) salida.remove(ruta);
+        ruta.getDestino().eliminarRutaDeEntrada(ruta);
+    }
+
+    /**
+     * enganchar
+     * Objetivo: si ya se conocen las dos paradas, crear la ruta y agregarla a la salida de su inicio
+     *           y a la entrada de su destino.
+     * Retorno: boolean (false si falta alguna parada).
+     */
+    private static boolean enganchar(FilaRuta fila, Map<Long, Parada> porId, Map<Parada, List<Ruta>> salientes, int[] enganchadas) {
+        Parada inicio = porId.get(fila.inicio);
+        Parada destino = porId.get(fila.destino);
+        if (inicio == null || destino == null) return false;
+
+        Ruta ruta = new Ruta(fila.nombre, inicio, destino, fila.distancia, fila.tiempo, fila.costo);
+        ruta.setId(fila.id);
+        ruta.setEstado(fila.estado);
+        ruta.setEvento(fila.evento);
+        ruta.setTransbordo(fila.transbordo);
+
+        salientes.computeIfAbsent(inicio, p -> new ArrayList<>()).add(ruta);
+        destino.agregarRutaDeEntrada(ruta);
+        enganchadas[0]++;
+        return true;
+    }
+}
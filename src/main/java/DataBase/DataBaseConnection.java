@@ -1,20 +1,391 @@
 package DataBase;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Nombre de la clase: DataBaseConnection
+ *
+ * Objetivo:
+ * - Entregar conexiones a PostgreSQL desde un pool acotado en vez de abrir una nueva (TCP + autenticación)
+ *   en cada consulta. getConnection() sigue igual para los DAO: al cerrar la conexión vuelve al pool.
+ * - Cada conexión guarda sus PreparedStatement por SQL: la segunda vez que se prepara la misma sentencia
+ *   se reutiliza la ya compilada. Al cerrar el statement vuelve a la caché de su conexión.
+ *
+ * Nota:
+ * - Antes de prestar una conexión que estuvo quieta un rato se verifica con isValid; si se cayó, se abre otra.
+ * - Si todas las conexiones están prestadas, getConnection espera hasta ESPERA_MAXIMA_MS y luego lanza SQLException.
+ * - Al devolver una conexión se deshace lo que haya quedado sin commit, se vuelve a autocommit y se cierran
+ *   los Statement sueltos (no cacheados) que el DAO haya olvidado cerrar. Las sentencias cacheadas vuelven
+ *   a sus ajustes de antes (fetchSize, maxRows, timeout...) para no pasárselos al siguiente que las use.
+ * - Después de cerrarPool() no se presta nada más y las conexiones prestadas se cierran al devolverse.
+ */
 public class DataBaseConnection {
-    private static final String URL = "jdbc:postgresql://localhost:5432/PFINAL";
+    // reWriteBatchedInserts: el driver junta los INSERT de un executeBatch en uno de varias filas (ver CargaMasiva)
+    private static final String URL = "jdbc:postgresql://localhost:5432/PFINAL?reWriteBatchedInserts=true";
     private static final String USER = "admin";
     private static final String PASSWORD = "1234";
 
+    public static final int MAX_CONEXIONES = 8;
+    public static final long ESPERA_MAXIMA_MS = 30_000;
+    private static final long VALIDAR_SI_QUIETA_MS = 30_000; // Validar con isValid si estuvo quieta más que esto
+    private static final int SEGUNDOS_VALIDACION = 2;
+    private static final int MAX_SENTENCIAS_POR_CONEXION = 64;
+
+    private static final Semaphore permisos = new Semaphore(MAX_CONEXIONES, true);
+    private static final Deque<ConexionAgrupada> libres = new ArrayDeque<>();
+    private static boolean driverCargado;
+    private static boolean cerrado; // cerrarPool() ya se llamó
+
     public static Connection getConnection() throws SQLException {
+        if (estaCerrado()) throw new SQLException("El pool de conexiones ya se cerró", "08003");
+        boolean conPermiso;
+        try {
+            conPermiso = permisos.tryAcquire(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Se interrumpió la espera por una conexión", e);
+        }
+        if (!conPermiso) {
+            throw new SQLException("No hay conexiones libres en el pool después de " + ESPERA_MAXIMA_MS + " ms");
+        }
+
         try {
-            Class.forName("org.postgresql.Driver");
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+            ConexionAgrupada conexion;
+            while ((conexion = sacarLibre()) != null) {
+                if (conexion.sirve()) return conexion.prestar();
+                conexion.cerrarFisica(); // Se cayó o la cerró el servidor: la descartamos
+            }
+            return new ConexionAgrupada(abrirFisica()).prestar();
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * cerrarPool
+     * Objetivo: cerrar las conexiones libres (al salir de la aplicación) y no prestar más.
+     *           Las que estén prestadas se cierran de verdad cuando se devuelvan (ver devolverLibre).
+     * Retorno: ninguno.
+     */
+    public static void cerrarPool() {
+        List<ConexionAgrupada> aCerrar;
+        synchronized (DataBaseConnection.class) {
+            cerrado = true;
+            aCerrar = new ArrayList<>(libres);
+            libres.clear();
+        }
+        for (ConexionAgrupada conexion : aCerrar) conexion.cerrarFisica();
+    }
+
+    private static synchronized boolean estaCerrado() {
+        return cerrado;
+    }
+
+    private static synchronized ConexionAgrupada sacarLibre() {
+        return libres.pollFirst();
+    }
+
+    /**
+     * devolverLibre
+     * Objetivo: dejar la conexión en el pool para el próximo préstamo.
+     * Retorno: boolean (false si el pool ya se cerró: quien la devuelve la tiene que cerrar).
+     */
+    private static synchronized boolean devolverLibre(ConexionAgrupada conexion) {
+        if (cerrado) return false;
+        libres.addFirst(conexion); // La más recién usada sale primero: las demás pueden quedarse quietas
+        return true;
+    }
+
+    private static Connection abrirFisica() throws SQLException {
+        synchronized (DataBaseConnection.class) {
+            if (!driverCargado) {
+                try {
+                    Class.forName("org.postgresql.Driver");
+                } catch (ClassNotFoundException e) {
+                    e.printStackTrace();
+                }
+                driverCargado = true;
+            }
         }
         return DriverManager.getConnection(URL, USER, PASSWORD);
     }
+
+    /**
+     * Clase ConexionAgrupada
+     * Propósito: una conexión física del pool. prestar() entrega un proxy de Connection cuyo close()
+     *            la devuelve al pool y cuyo prepareStatement usa la caché de sentencias.
+     */
+    private static final class ConexionAgrupada {
+        private final Connection fisica;
+        private long ultimoUso = System.currentTimeMillis();
+
+        // Sentencias preparadas por (sql, claves generadas); orden de acceso para sacar la menos usada
+        private final LinkedHashMap<String, SentenciaCacheada> sentencias = new LinkedHashMap<>(16, 0.75f, true);
+        // Statements no cacheados abiertos durante el préstamo actual
+        private final List<Statement> sueltos = new ArrayList<>();
+
+        ConexionAgrupada(Connection fisica) {
+            this.fisica = fisica;
+        }
+
+        boolean sirve() {
+            try {
+                if (fisica.isClosed()) return false;
+                if (System.currentTimeMillis() - ultimoUso < VALIDAR_SI_QUIETA_MS) return true;
+                return fisica.isValid(SEGUNDOS_VALIDACION);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        Connection prestar() {
+            Prestamo prestamo = new Prestamo(this);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, prestamo);
+        }
+
+        /**
+         * preparar
+         * Objetivo: devolver la sentencia cacheada para ese SQL si está libre; si no, prepararla.
+         *           Si ya está en uso en este mismo préstamo (dos abiertas a la vez), se entrega una suelta.
+         *           "prestamo" es el proxy de Connection que la pidió (lo devuelve getConnection de la sentencia).
+         * Retorno: PreparedStatement (proxy).
+         */
+        PreparedStatement preparar(String sql, int clavesGeneradas, Connection prestamo) throws SQLException {
+            String clave = clavesGeneradas + "|" + sql;
+            SentenciaCacheada cacheada = sentencias.get(clave);
+            if (cacheada != null && cacheada.descartada && !cacheada.enUso) { // Se usó de una forma que no se puede deshacer
+                sentencias.remove(clave);
+                cerrarSilencioso(cacheada.real);
+                cacheada = null;
+            }
+            if (cacheada != null && !cacheada.enUso) {
+                return cacheada.prestar(prestamo);
+            }
+
+            PreparedStatement real = fisica.prepareStatement(sql, clavesGeneradas);
+            if (cacheada != null) { // La cacheada está ocupada: esta no se guarda
+                sueltos.add(real);
+                return real;
+            }
+
+            cacheada = new SentenciaCacheada(real);
+            sentencias.put(clave, cacheada);
+            if (sentencias.size() > MAX_SENTENCIAS_POR_CONEXION) {
+                Iterator<SentenciaCacheada> it = sentencias.values().iterator();
+                while (it.hasNext() && sentencias.size() > MAX_SENTENCIAS_POR_CONEXION) {
+                    SentenciaCacheada vieja = it.next();
+                    if (vieja.enUso) continue;
+                    it.remove();
+                    cerrarSilencioso(vieja.real);
+                }
+            }
+            return cacheada.prestar(prestamo);
+        }
+
+        /**
+         * devolver
+         * Objetivo: dejar la conexión lista para el próximo préstamo y regresarla al pool.
+         * Retorno: ninguno.
+         */
+        void devolver() {
+            for (Statement s : sueltos) cerrarSilencioso(s);
+            sueltos.clear();
+            for (SentenciaCacheada s : sentencias.values()) s.liberar();
+
+            boolean sana = true;
+            try {
+                if (!fisica.getAutoCommit()) {
+                    fisica.rollback(); // Lo que no se confirmó no debe quedar para el siguiente
+                    fisica.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                sana = false;
+            }
+
+            ultimoUso = System.currentTimeMillis();
+            if (!sana || !devolverLibre(this)) cerrarFisica(); // Rota, o el pool ya se cerró
+            permisos.release();
+        }
+
+        void cerrarFisica() {
+            for (SentenciaCacheada s : sentencias.values()) cerrarSilencioso(s.real);
+            sentencias.clear();
+            cerrarSilencioso(fisica);
+        }
+    }
+
+    /**
+     * Clase Prestamo
+     * Propósito: proxy de Connection durante un préstamo. close() devuelve la conexión al pool (una sola vez);
+     *            prepareStatement pasa por la caché; createStatement queda anotado para cerrarlo al devolver.
+     */
+    private static final class Prestamo implements InvocationHandler {
+        private final ConexionAgrupada conexion;
+        private boolean cerrada;
+
+        Prestamo(ConexionAgrupada conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            switch (nombre) {
+                case "close" -> {
+                    if (!cerrada) {
+                        cerrada = true;
+                        conexion.devolver();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return cerrada || conexion.fisica.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Conexión del pool (" + conexion.fisica + ")";
+                }
+                default -> { }
+            }
+            if (cerrada) throw new SQLException("La conexión ya se devolvió al pool");
+
+            // prepareStatement(sql) y prepareStatement(sql, autoGeneratedKeys) usan la caché
+            if (nombre.equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || metodo.getParameterTypes()[1] == int.class)) {
+                int claves = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return conexion.preparar((String) args[0], claves, (Connection) proxy);
+            }
+
+            Object resultado;
+            try {
+                resultado = metodo.invoke(conexion.fisica, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (resultado instanceof Statement s) conexion.sueltos.add(s); // createStatement, prepareCall, etc.
+            return resultado;
+        }
+    }
+
+    /**
+     * Clase SentenciaCacheada
+     * Propósito: PreparedStatement guardado en su conexión. El proxy intercepta close() para
+     *            limpiar parámetros y ajustes y marcarlo libre en vez de cerrarlo.
+     */
+    private static final class SentenciaCacheada implements InvocationHandler {
+        // Ajustes que se pueden deshacer: setter -> getter del valor que tenía antes
+        private static final Map<String, String> AJUSTES = Map.of(
+                "setFetchSize", "getFetchSize",
+                "setFetchDirection", "getFetchDirection",
+                "setMaxRows", "getMaxRows",
+                "setLargeMaxRows", "getLargeMaxRows",
+                "setMaxFieldSize", "getMaxFieldSize",
+                "setQueryTimeout", "getQueryTimeout",
+                "setPoolable", "isPoolable");
+        // Ajustes sin forma de leer el valor anterior: la sentencia ya no se vuelve a prestar
+        private static final Set<String> SIN_DESHACER = Set.of("setCursorName", "closeOnCompletion", "setEscapeProcessing");
+
+        private final PreparedStatement real;
+        private final PreparedStatement proxy;
+        private final Map<Method, Object> originales = new HashMap<>(); // setter -> valor a restaurar
+        private Connection prestamo; // proxy de la conexión que la tiene ahora
+        private boolean enUso;
+        private boolean descartada;
+
+        SentenciaCacheada(PreparedStatement real) {
+            this.real = real;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        PreparedStatement prestar(Connection prestamo) {
+            this.prestamo = prestamo;
+            enUso = true;
+            return proxy;
+        }
+
+        void liberar() {
+            if (!enUso) return;
+            enUso = false;
+            prestamo = null;
+            try {
+                real.clearParameters();
+                real.clearBatch();
+            } catch (SQLException e) {
+                // Si no se pudo limpiar, la próxima vez igual se vuelven a poner todos los parámetros
+            }
+            for (Map.Entry<Method, Object> ajuste : originales.entrySet()) {
+                try {
+                    ajuste.getKey().invoke(real, ajuste.getValue());
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    descartada = true; // No volvió a como estaba: no se presta más
+                }
+            }
+            originales.clear();
+        }
+
+        @Override
+        public Object invoke(Object p, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            switch (nombre) {
+                case "close" -> {
+                    liberar();
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !enUso || real.isClosed();
+                }
+                case "getConnection" -> {
+                    return prestamo; // El proxy del préstamo: cerrarla la devuelve al pool en vez de cerrarla
+                }
+                case "equals" -> {
+                    return p == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(p);
+                }
+                default -> { }
+            }
+            if (AJUSTES.containsKey(nombre) && !originales.containsKey(metodo)) {
+                try {
+                    originales.put(metodo, Statement.class.getMethod(AJUSTES.get(nombre)).invoke(real));
+                } catch (ReflectiveOperationException e) {
+                    descartada = true; // El driver no deja leer el valor: no se podrá restaurar
+                }
+            } else if (SIN_DESHACER.contains(nombre)) {
+                descartada = true;
+            }
+            try {
+                return metodo.invoke(real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static void cerrarSilencioso(AutoCloseable recurso) {
+        try {
+            recurso.close();
+        } catch (Exception e) {
+            // Al cerrar no hay nada más que hacer
+        }
+    }
 }
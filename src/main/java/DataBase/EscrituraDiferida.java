@@ -0,0 +1,463 @@
+package DataBase;
+
+import models.Parada;
+import models.Ruta;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nombre de la clase: EscrituraDiferida
+ *
+ * Objetivo:
+ * - Guardar en la base los cambios de paradas y rutas sin trabar la ventana: la UI cambia el Grafo en memoria
+ *   al momento y aquí solo anota el cambio; un hilo aparte los escribe juntos, en una transacción y por lotes
+ *   (addBatch/executeBatch), ESPERA_MS después del primero.
+ * - Los cambios a una misma parada o ruta se juntan: insertar y luego editar es un solo INSERT con los valores
+ *   nuevos, editar varias veces es un solo UPDATE, e insertar y luego borrar no escribe nada.
+ *
+ * Nota:
+ * - Los valores se copian al anotar el cambio; los ids se leen al escribir (una ruta nueva puede apuntar
+ *   a una parada que se inserta en el mismo lote). Los ids generados se asignan recién después del commit,
+ *   desde el hilo de escritura (el id de Parada y Ruta es volatile para que la UI lo vea).
+ * - Orden dentro del lote: paradas nuevas, paradas editadas, rutas nuevas, rutas editadas, rutas borradas
+ *   y al final paradas borradas (con las rutas que todavía las usen), para no romper las claves foráneas.
+ * - Si falla por conexión (o la base está ocupada) se reintenta con espera creciente hasta REINTENTO_MAX_MS, sin perder nada.
+ *   Si falla por los datos, el lote se reintenta de a un cambio y cada uno se juzga por su propio error:
+ *   los que fallan por sus datos se descartan con log (un cambio imposible no puede trabar a los demás
+ *   para siempre) y los que fallan por conexión vuelven a la cola.
+ * - getPendientes() cuenta paradas/rutas con cambios sin confirmar; los Observador se enteran de cada cambio.
+ */
+public class EscrituraDiferida {
+    public static final long ESPERA_MS = 50;           // Ventana para juntar cambios antes de escribir
+    public static final long REINTENTO_MIN_MS = 500;
+    public static final long REINTENTO_MAX_MS = 30_000;
+
+    private static EscrituraDiferida instance = null;
+
+    public static synchronized EscrituraDiferida getInstance() {
+        if (instance == null) {
+            instance = new EscrituraDiferida();
+        }
+        return instance;
+    }
+
+    /**
+     * Avisa cuántos cambios quedan sin guardar. Se llama desde el hilo que anota o desde el de escritura,
+     * no desde el de JavaFX.
+     */
+    public interface Observador {
+        void pendientes(int cantidad);
+    }
+
+    private enum Tipo { INSERTAR, ACTUALIZAR, ELIMINAR }
+
+    /**
+     * Clase Operacion
+     * Propósito: el cambio pendiente de una parada o ruta, con los valores copiados al anotarlo.
+     */
+    private abstract static class Operacion {
+        Tipo tipo;
+        int intentos;
+
+        abstract Object entidad();
+
+        abstract int fase(); // orden dentro del lote (ver Nota de la clase)
+
+        abstract void copiarValores();
+    }
+
+    private static final class OpParada extends Operacion {
+        final Parada parada;
+        String nombre, tipoParada;
+
+        OpParada(Parada parada, Tipo tipo) {
+            this.parada = parada;
+            this.tipo = tipo;
+            copiarValores();
+        }
+
+        Object entidad() { return parada; }
+
+        int fase() { return tipo == Tipo.INSERTAR ? 0 : tipo == Tipo.ACTUALIZAR ? 1 : 5; }
+
+        void copiarValores() {
+            nombre = parada.getNombre();
+            tipoParada = parada.getTipo();
+        }
+    }
+
+    private static final class OpRuta extends Operacion {
+        final Ruta ruta;
+        String nombre, evento, transbordo;
+        Parada inicio, destino;
+        double distancia, tiempo, costo;
+        boolean estado;
+
+        OpRuta(Ruta ruta, Tipo tipo) {
+            this.ruta = ruta;
+            this.tipo = tipo;
+            copiarValores();
+        }
+
+        Object entidad() { return ruta; }
+
+        int fase() { return tipo == Tipo.INSERTAR ? 2 : tipo == Tipo.ACTUALIZAR ? 3 : 4; }
+
+        void copiarValores() {
+            nombre = ruta.getNombre();
+            inicio = ruta.getInicio();
+            destino = ruta.getDestino();
+            distancia = ruta.getDistancia();
+            tiempo = ruta.getTiempo();
+            costo = ruta.getCosto();
+            estado = ruta.isEstado();
+            evento = ruta.getEvento();
+            transbordo = ruta.getTransbordo();
+        }
+    }
+
+    // Un cambio por entidad (Parada y Ruta no redefinen equals: se comparan por identidad)
+    private final Map<Object, Operacion> pendientes = new IdentityHashMap<>();
+    private int enVuelo;        // cambios que el hilo de escritura está guardando ahora
+    private boolean programado; // ya hay una escritura programada
+    private int descartados;
+    private final List<Observador> observadores = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "escritura-diferida");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private EscrituraDiferida() { }
+
+    // ---------------- ANOTAR CAMBIOS ----------------
+
+    public void guardarParada(Parada parada) { anotar(new OpParada(parada, Tipo.INSERTAR)); }
+
+    public void actualizarParada(Parada parada) { anotar(new OpParada(parada, Tipo.ACTUALIZAR)); }
+
+    public void eliminarParada(Parada parada) { anotar(new OpParada(parada, Tipo.ELIMINAR)); }
+
+    public void guardarRuta(Ruta ruta) { anotar(new OpRuta(ruta, Tipo.INSERTAR)); }
+
+    public void actualizarRuta(Ruta ruta) { anotar(new OpRuta(ruta, Tipo.ACTUALIZAR)); }
+
+    public void eliminarRuta(Ruta ruta) { anotar(new OpRuta(ruta, Tipo.ELIMINAR)); }
+
+    public void agregarObservador(Observador observador) { observadores.add(observador); }
+
+    public synchronized int getPendientes() { return pendientes.size() + enVuelo; }
+
+    public synchronized int getDescartados() { return descartados; }
+
+    /**
+     * anotar
+     * Objetivo: juntar el cambio con el que ya hubiera para la misma entidad y programar la escritura.
+     * Retorno: ninguno.
+     */
+    private void anotar(Operacion nueva) {
+        int cantidad;
+        synchronized (this) {
+            Operacion combinada = combinar(pendientes.get(nueva.entidad()), nueva);
+            if (combinada == null) pendientes.remove(nueva.entidad());
+            else pendientes.put(nueva.entidad(), combinada);
+            programar(ESPERA_MS);
+            cantidad = getPendientes();
+        }
+        avisar(cantidad);
+    }
+
+    /**
+     * combinar
+     * Objetivo: resultado de aplicar "nueva" después de "vieja" sobre la misma entidad.
+     * Retorno: Operacion, o null si se anulan (insertar y luego borrar).
+     */
+    private static Operacion combinar(Operacion vieja, Operacion nueva) {
+        if (vieja == null) return nueva;
+        switch (vieja.tipo) {
+            case INSERTAR -> {
+                if (nueva.tipo == Tipo.ELIMINAR) return null; // Nunca llegó a la base
+                nueva.tipo = Tipo.INSERTAR;                   // Se inserta con los valores más nuevos
+                nueva.intentos = vieja.intentos;
+                return nueva;
+            }
+            case ACTUALIZAR -> {
+                nueva.intentos = vieja.intentos;
+                return nueva;
+            }
+            default -> {
+                return vieja; // Ya borrada: lo que venga después no se guarda
+            }
+        }
+    }
+
+    private void programar(long demoraMs) {
+        if (programado) return;
+        programado = true;
+        hilo.schedule(this::escribir, demoraMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void avisar(int cantidad) {
+        for (Observador o : observadores) o.pendientes(cantidad);
+    }
+
+    /**
+     * vaciar
+     * Objetivo: escribir ya lo pendiente y esperar hasta que no quede nada (o se acabe el tiempo). Para cerrar la app.
+     * Retorno: boolean (true si no quedó nada pendiente).
+     */
+    public boolean vaciar(long esperaMaximaMs) {
+        hilo.execute(this::escribir);
+        long limite = System.currentTimeMillis() + esperaMaximaMs;
+        synchronized (this) {
+            while (getPendientes() > 0) {
+                long falta = limite - System.currentTimeMillis();
+                if (falta <= 0) return false;
+                try {
+                    wait(falta);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // ---------------- ESCRIBIR ----------------
+
+    /**
+     * escribir
+     * Objetivo: tomar todo lo pendiente y guardarlo en una transacción. Corre en el hilo de escritura.
+     * Retorno: ninguno.
+     */
+    private void escribir() {
+        List<Operacion> lote;
+        synchronized (this) {
+            programado = false;
+            if (pendientes.isEmpty()) return;
+            lote = new ArrayList<>(pendientes.values());
+            pendientes.clear();
+            enVuelo = lote.size();
+        }
+        lote.sort(Comparator.comparingInt(Operacion::fase));
+
+        try {
+            confirmar(lote, ejecutar(lote));
+        } catch (SQLException | RuntimeException e) {
+            // Un RuntimeException (p. ej. una ruta sin parada) se trata como error de datos: si se escapara,
+            // el ejecutor lo tragaría y estos cambios quedarían "en vuelo" para siempre
+            e.printStackTrace();
+            if (transitorio(e) || lote.size() == 1) {
+                fallaron(lote, transitorio(e));
+                return;
+            }
+            // Algún dato no entra: de a uno, para que los demás sí se guarden.
+            // Cada cambio se juzga por su propio error: solo se descarta el que falla por sus datos.
+            List<Operacion> malos = new ArrayList<>();
+            for (int i = 0; i < lote.size(); i++) {
+                Operacion op = lote.get(i);
+                try {
+                    confirmar(List.of(op), ejecutar(List.of(op)));
+                } catch (SQLException | RuntimeException e1) {
+                    e1.printStackTrace();
+                    if (transitorio(e1)) {
+                        // Se cayó la conexión: este y los que faltan vuelven a la cola sin probarlos
+                        fallaron(lote.subList(i, lote.size()), true);
+                        break;
+                    }
+                    malos.add(op);
+                }
+            }
+            if (!malos.isEmpty()) fallaron(malos, false);
+        }
+    }
+
+    /**
+     * ejecutar
+     * Objetivo: mandar el lote (ya ordenado por fase) en una sola transacción, una tanda de executeBatch por sentencia.
+     * Retorno: Map<Object, Long> con los ids generados de lo que se insertó (se asignan después del commit).
+     */
+    private Map<Object, Long> ejecutar(List<Operacion> lote) throws SQLException {
+        Map<Object, Long> ids = new IdentityHashMap<>();
+        try (Connection connection = DataBaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int i = 0;
+                while (i < lote.size()) {
+                    int fase = lote.get(i).fase();
+                    int fin = i;
+                    while (fin < lote.size() && lote.get(fin).fase() == fase) fin++;
+                    ejecutarFase(connection, fase, lote.subList(i, fin), ids);
+                    i = fin;
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback(); // Antes del finally: setAutoCommit(true) confirmaría lo que quedó a medias
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        return ids;
+    }
+
+    private void ejecutarFase(Connection connection, int fase, List<Operacion> ops, Map<Object, Long> ids) throws SQLException {
+        switch (fase) {
+            case 0 -> insertar(connection, "INSERT INTO parada (\"nombre\", \"tipo\") VALUES (?, ?)", ops, ids, (ps, op) -> {
+                OpParada p = (OpParada) op;
+                ps.setString(1, p.nombre);
+                ps.setString(2, p.tipoParada);
+            });
+            case 1 -> lote(connection, "UPDATE parada SET nombre = ?, \"tipo\" = ? WHERE id = ?", ops, (ps, op) -> {
+                OpParada p = (OpParada) op;
+                ps.setString(1, p.nombre);
+                ps.setString(2, p.tipoParada);
+                ps.setLong(3, p.parada.getId());
+            });
+            case 2 -> insertar(connection, "INSERT INTO route (\"nombre\", \"inicio\", \"destino\", \"distancia\", \"tiempo\", \"costo\", \"estado\", \"evento\", \"transbordo\") " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", ops, ids, (ps, op) -> llenarRuta(ps, (OpRuta) op, ids));
+            case 3 -> lote(connection, "UPDATE route SET nombre = ?, inicio = ?, destino = ?, distancia = ?, tiempo = ?, costo = ?, estado = ?, evento = ?, transbordo = ? WHERE id = ?", ops, (ps, op) -> {
+                OpRuta r = (OpRuta) op;
+                llenarRuta(ps, r, ids);
+                ps.setLong(10, r.ruta.getId());
+            });
+            case 4 -> lote(connection, "DELETE FROM route WHERE id = ?", ops,
+                    (ps, op) -> ps.setLong(1, ((OpRuta) op).ruta.getId()));
+            default -> {
+                // Primero las rutas que todavía la usen (p. ej. las que se ignoraron al cargar), luego la parada
+                lote(connection, "DELETE FROM route WHERE inicio = ? OR destino = ?", ops, (ps, op) -> {
+                    long id = ((OpParada) op).parada.getId();
+                    ps.setLong(1, id);
+                    ps.setLong(2, id);
+                });
+                lote(connection, "DELETE FROM parada WHERE id = ?", ops,
+                        (ps, op) -> ps.setLong(1, ((OpParada) op).parada.getId()));
+            }
+        }
+    }
+
+    private static void llenarRuta(PreparedStatement ps, OpRuta r, Map<Object, Long> ids) throws SQLException {
+        ps.setString(1, r.nombre);
+        ps.setLong(2, idDe(r.inicio, ids));
+        ps.setLong(3, idDe(r.destino, ids));
+        ps.setDouble(4, r.distancia);
+        ps.setDouble(5, r.tiempo);
+        ps.setDouble(6, r.costo);
+        ps.setBoolean(7, r.estado);
+        ps.setString(8, r.evento);
+        ps.setString(9, r.transbordo);
+    }
+
+    // Id de una parada: el que se le acaba de generar en esta transacción o el que ya tenía
+    private static long idDe(Parada parada, Map<Object, Long> ids) {
+        Long nuevo = ids.get(parada);
+        return nuevo != null ? nuevo : parada.getId();
+    }
+
+    // Pasa los valores de un cambio a los parámetros de la sentencia
+    private interface Llenador {
+        void llenar(PreparedStatement ps, Operacion op) throws SQLException;
+    }
+
+    private static void lote(Connection connection, String sql, List<Operacion> ops, Llenador llenador) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Operacion op : ops) {
+                llenador.llenar(ps, op);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void insertar(Connection connection, String sql, List<Operacion> ops, Map<Object, Long> ids,
+                                 Llenador llenador) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Operacion op : ops) {
+                llenador.llenar(ps, op);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                int i = 0;
+                while (rs.next() && i < ops.size()) ids.put(ops.get(i++).entidad(), rs.getLong(1));
+                if (i != ops.size()) throw new SQLException("Se esperaban " + ops.size() + " ids generados y llegaron " + i);
+            }
+        }
+    }
+
+    /**
+     * confirmar
+     * Objetivo: asignar los ids generados y sacar el lote de los pendientes.
+     * Retorno: ninguno.
+     */
+    private void confirmar(List<Operacion> lote, Map<Object, Long> ids) {
+        int cantidad;
+        synchronized (this) {
+            for (Operacion op : lote) {
+                Long id = ids.get(op.entidad());
+                if (id == null) continue;
+                if (op instanceof OpParada p) p.parada.setId(id);
+                else ((OpRuta) op).ruta.setId(id);
+            }
+            enVuelo -= lote.size();
+            cantidad = getPendientes();
+            notifyAll();
+        }
+        avisar(cantidad);
+    }
+
+    /**
+     * fallaron
+     * Objetivo: sacar de "en vuelo" cambios que no se guardaron. Si fallaron por conexión vuelven a pendientes
+     *           (juntándolos con lo que se anotó mientras tanto) con espera creciente; si fallaron por sus datos
+     *           se descartan.
+     * Retorno: ninguno.
+     */
+    private void fallaron(List<Operacion> lote, boolean reintentar) {
+        int cantidad;
+        synchronized (this) {
+            int intentos = 0;
+            for (Operacion op : lote) {
+                if (!reintentar) {
+                    descartados++;
+                    continue;
+                }
+                op.intentos++;
+                intentos = Math.max(intentos, op.intentos);
+                Operacion nueva = pendientes.remove(op.entidad());
+                Operacion combinada = nueva == null ? op : combinar(op, nueva);
+                if (combinada != null) pendientes.put(op.entidad(), combinada);
+            }
+            enVuelo -= lote.size();
+            if (reintentar && !pendientes.isEmpty()) {
+                programar(Math.min(REINTENTO_MAX_MS, REINTENTO_MIN_MS << Math.min(intentos - 1, 10)));
+            }
+            cantidad = getPendientes();
+            notifyAll();
+        }
+        avisar(cantidad);
+    }
+
+    /**
+     * transitorio
+     * Objetivo: distinguir fallas de conexión o de carga de la base (vale la pena reintentar)
+     *           de fallas por los datos (reintentar no cambia nada).
+     * Retorno: boolean (false si no es una SQLException).
+     */
+    private static boolean transitorio(Exception e) {
+        if (!(e instanceof SQLException sql)) return false;
+        String estado = sql.getSQLState();
+        return estado == null               // Sin conexión del pool o error del driver antes de llegar a la base
+                || estado.startsWith("08")  // Conexión
+                || estado.startsWith("40")  // Deadlock / serialización
+                || estado.startsWith("53")  // Sin recursos
+                || estado.startsWith("57"); // Servidor apagándose o consulta cancelada
+    }
+}
@@ -20,15 +20,16 @@ public class ParadaDAO {
     public void guardarParada(Parada parada) {
         final String sql = "INSERT INTO parada (\"nombre\", \"tipo\") VALUES (?, ?)";
 
-        try(Connection connection = DataBaseConnection.getConnection()){
-            PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        try(Connection connection = DataBaseConnection.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)){
             preparedStatement.setString(1, parada.getNombre());
             preparedStatement.setString(2, parada.getTipo());
             preparedStatement.executeUpdate();
 
-            ResultSet rs = preparedStatement.getGeneratedKeys();
-            if (rs.next()) {
-                parada.setId(rs.getLong(1));
+            try (ResultSet rs = preparedStatement.getGeneratedKeys()) {
+                if (rs.next()) {
+                    parada.setId(rs.getLong(1));
+                }
             }
 
         } catch (SQLException e){
@@ -41,9 +42,9 @@ public class ParadaDAO {
         HashMap<Long, Parada> paradas = new HashMap<>();
         final String sql = "SELECT * FROM parada";
 
-        try(Connection connection = DataBaseConnection.getConnection()){
+        try(Connection connection = DataBaseConnection.getConnection();
             Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(sql);
+            ResultSet resultSet = statement.executeQuery(sql)){
 
             while (resultSet.next()){
                 long id = resultSet.getLong("id");
@@ -65,8 +66,8 @@ public class ParadaDAO {
     public void actualizarParada(Parada parada) {
         final String sql = "UPDATE parada SET nombre = ?, \"tipo\" = ? WHERE id = ?";
 
-        try(Connection connection = DataBaseConnection.getConnection()){
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        try(Connection connection = DataBaseConnection.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql)){
             preparedStatement.setString(1, parada.getNombre());
             preparedStatement.setString(2, parada.getTipo());
             preparedStatement.setLong(3, parada.getId());
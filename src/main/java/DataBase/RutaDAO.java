@@ -22,8 +22,8 @@ public class RutaDAO {
         final String sql = "INSERT INTO route (\"nombre\", \"inicio\", \"destino\", \"distancia\", \"tiempo\", \"costo\", \"estado\", \"evento\", \"transbordo\") " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection connection = DataBaseConnection.getConnection()) {
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        try (Connection connection = DataBaseConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, ruta.getNombre());
             ps.setLong(2, ruta.getInicio().getId());
             ps.setLong(3, ruta.getDestino().getId());
@@ -36,9 +36,10 @@ public class RutaDAO {
 
             ps.executeUpdate();
 
-            ResultSet rs = ps.getGeneratedKeys();
-            if (rs.next()) {
-                ruta.setId(rs.getLong(1));
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    ruta.setId(rs.getLong(1));
+                }
             }
 
         } catch (SQLException e) {
@@ -51,9 +52,9 @@ public class RutaDAO {
         HashMap<Long, Ruta> resultado = new HashMap<>();
         final String sql = "SELECT * FROM route";
 
-        try (Connection connection = DataBaseConnection.getConnection()) {
-            Statement statement = connection.createStatement();
-            ResultSet rs = statement.executeQuery(sql);
+        try (Connection connection = DataBaseConnection.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
 
             while (rs.next()) {
                 long id = rs.getLong("id");
@@ -94,8 +95,8 @@ public class RutaDAO {
     public void actualizarRuta(Ruta ruta) {
         final String sql = "UPDATE route SET nombre = ?, inicio = ?, destino = ?, distancia = ?, tiempo = ?, costo = ?, estado = ?, evento = ?, transbordo = ? WHERE id = ?";
 
-        try (Connection connection = DataBaseConnection.getConnection()) {
-            PreparedStatement ps = connection.prepareStatement(sql);
+        try (Connection connection = DataBaseConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, ruta.getNombre());
             ps.setLong(2, ruta.getInicio().getId());
             ps.setLong(3, ruta.getDestino().getId());
@@ -117,8 +118,8 @@ public class RutaDAO {
     public void eliminarRuta(long rutaId) {
         final String sql = "DELETE FROM route WHERE id = ?";
 
-        try (Connection connection = DataBaseConnection.getConnection()) {
-            PreparedStatement ps = connection.prepareStatement(sql);
+        try (Connection connection = DataBaseConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, rutaId);
             ps.executeUpdate();
         } catch (SQLException e) {
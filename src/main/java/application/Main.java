@@ -1,20 +1,31 @@
 package application;
 
+import DataBase.CargaRed;
+import DataBase.DataBaseConnection;
+import DataBase.EscrituraDiferida;
 import controllers.Menu2Controller;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import models.Grafo;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class Main extends Application {
 
+    private static final String TITULO = "Menú Principal";
+    // Copia binaria de la red para arrancar sin leerla toda de la base (ver models.Instantanea)
+    private static final Path ARCHIVO_INSTANTANEA = Path.of(System.getProperty("user.home"), ".pfinal", "red.instantanea");
+    // Cuánto se espera al cerrar a que se guarden los cambios pendientes
+    private static final long ESPERA_CIERRE_MS = 10_000;
+
     @Override
     public void start(Stage stage) throws Exception {
 
-        // Cargar datos desde la base de datos ANTES de cargar la interfaz
-        Grafo.getInstance().cargarDesdeDB();
-
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/application/Menu2.fxml"));
         Scene scene = new Scene(fxmlLoader.load());
 
@@ -25,9 +36,75 @@ public class Main extends Application {
         Menu2Controller mainController = fxmlLoader.getController();
         mainController.pantalla = stage;
 
-        stage.setTitle("Menú Principal");
+        stage.setTitle(TITULO);
         stage.setScene(scene);
         stage.show();
+
+        // Los cambios se guardan en segundo plano: el título avisa cuántos faltan
+        EscrituraDiferida.getInstance().agregarObservador(cantidad -> Platform.runLater(() ->
+                stage.setTitle(cantidad == 0 ? TITULO : TITULO + " - " + cantidad + " cambios sin guardar")));
+
+        // La ventana ya está visible: la red se lee en otro hilo y se instala al terminar
+        cargarRed(stage, mainController);
+    }
+
+    /**
+     * cargarRed
+     * Objetivo: leer paradas y rutas sin bloquear el hilo de JavaFX: desde la instantánea más lo que cambió
+     *           en la base, o todo desde la base si no hay instantánea.
+     *           El avance se muestra en el título; al terminar se instala en el Grafo y se refresca el menú.
+     * Retorno: ninguno.
+     */
+    private void cargarRed(Stage stage, Menu2Controller mainController) {
+        Task<CargaRed.Resultado> carga = new Task<>() {
+            @Override
+            protected CargaRed.Resultado call() {
+                return CargaRed.getInstance().cargar(ARCHIVO_INSTANTANEA, (paradas, rutas) ->
+                        updateMessage("Cargando red: " + paradas + " paradas, " + rutas + " rutas"));
+            }
+        };
+        carga.messageProperty().addListener((obs, o, mensaje) -> stage.setTitle(TITULO + " - " + mensaje));
+        carga.setOnSucceeded(e -> {
+            CargaRed.Resultado red = carga.getValue();
+            Grafo.getInstance().instalarRed(red);
+            mainController.refrescarRed();
+            stage.setTitle(red.completa ? TITULO : TITULO + " - la red no se cargó completa");
+        });
+        carga.setOnFailed(e -> {
+            carga.getException().printStackTrace();
+            stage.setTitle(TITULO + " - no se pudo cargar la red");
+        });
+
+        Thread hilo = new Thread(carga, "carga-red");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @Override
+    public void stop() {
+        // Terminar de guardar los cambios. Si alguno quedó sin guardar (pendiente o descartado por sus datos),
+        // la red en memoria ya no es la de la base: no se escribe instantánea y queda la anterior
+        EscrituraDiferida escritura = EscrituraDiferida.getInstance();
+        boolean guardado = escritura.vaciar(ESPERA_CIERRE_MS);
+        if (!guardado) {
+            System.err.println(escritura.getPendientes() + " cambios no se guardaron en la base");
+        }
+        if (escritura.getDescartados() > 0) {
+            System.err.println(escritura.getDescartados() + " cambios se descartaron por error en sus datos");
+            guardado = false;
+        }
+
+        // Guardar la red y sus índices para que el próximo arranque no la lea toda de la base
+        if (guardado) {
+            try {
+                Grafo.getInstance().guardarInstantanea(ARCHIVO_INSTANTANEA);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Cerrar las conexiones que quedaron abiertas en el pool
+        DataBaseConnection.cerrarPool();
     }
 
     public static void main(String[] args) {
@@ -59,7 +59,7 @@ public class CRUDParadaController {
                 // Modo edición: actualizamos la parada que ya existía.
                 paradaEnEdicion.setNombre(nombre);
                 paradaEnEdicion.setTipo(tipo);
-                DataBase.ParadaDAO.getInstance().actualizarParada(paradaEnEdicion);
+                DataBase.EscrituraDiferida.getInstance().actualizarParada(paradaEnEdicion);
 
                 // Mensaje de éxito simple para confirmar.
                 MostrarMensaje("Parada actualizada", "La parada se actualizó correctamente.");
@@ -67,7 +67,7 @@ public class CRUDParadaController {
                 // Modo registro: creamos la nueva parada y la guardamos.
                 Parada nueva = new Parada(nombre, tipo);
                 grafo.agregarParada(nueva);
-                DataBase.ParadaDAO.getInstance().guardarParada(nueva);
+                DataBase.EscrituraDiferida.getInstance().guardarParada(nueva);
 
                 // Mensaje de éxito cuando se registra.
                 MostrarMensaje("Parada registrada", "La parada se registró correctamente.");
@@ -1,6 +1,6 @@
 package controllers;
 
-import DataBase.RutaDAO;
+import DataBase.EscrituraDiferida;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -75,7 +75,7 @@ public class CRUDRutaController {
                 grafo.modificarRuta(rutaEnEdicion, nombre, inicio, destino, distancia, tiempo, costo);
 
                 // Actualizar en DB
-                RutaDAO.getInstance().actualizarRuta(rutaEnEdicion);
+                EscrituraDiferida.getInstance().actualizarRuta(rutaEnEdicion);
 
                 mostrarAlerta("Éxito", "Ruta modificada correctamente.");
                 if (listRutaController != null) {
@@ -89,7 +89,7 @@ public class CRUDRutaController {
                 Ruta nuevaRuta = grafo.agregarRuta(nombre, inicio, destino, distancia, tiempo, costo);
 
                 // Guardar en DB
-                RutaDAO.getInstance().guardarRuta(nuevaRuta);
+                EscrituraDiferida.getInstance().guardarRuta(nuevaRuta);
 
                 mostrarAlerta("Éxito", "Ruta registrada correctamente:\n" + nuevaRuta);
 
@@ -124,7 +124,7 @@ public class CRUDRutaController {
                 grafo.eliminarRuta(rutaEnEdicion);
 
                 // Eliminar de DB
-                RutaDAO.getInstance().eliminarRuta(rutaEnEdicion.getId());
+                EscrituraDiferida.getInstance().eliminarRuta(rutaEnEdicion);
 
                 // Eliminar de UI
                 if (listRutaController != null) {
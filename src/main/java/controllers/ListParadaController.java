@@ -91,15 +91,8 @@ public class ListParadaController {
         if (res.isPresent() && res.get() == ButtonType.OK) {
             // Quitamos del grafo y de la lista que pinta la tabla.
             grafo.eliminarParada(seleccionado);
+            // El grafo ya anotó el borrado en la DB (EscrituraDiferida).
             listaParadas.remove(seleccionado);
-
-            // Intentamos eliminar en la DB también.
-            try {
-                DataBase.ParadaDAO.getInstance().eliminarParada(seleccionado.getId());
-            } catch (Exception e) {
-                new Alert(Alert.AlertType.ERROR, "Error al eliminar de la DB: " + e.getMessage()).showAndWait();
-                e.printStackTrace();
-            }
         }
     }
 
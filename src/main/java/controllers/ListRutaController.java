@@ -15,7 +15,7 @@ import javafx.beans.property.SimpleStringProperty;
 import javafx.stage.Stage;
 import models.Grafo;
 import models.Ruta;
-import DataBase.RutaDAO;
+import DataBase.EscrituraDiferida;
 
 public class ListRutaController {
 
@@ -91,7 +91,7 @@ public class ListRutaController {
                 grafo.eliminarRuta(seleccionada);
 
                 // Eliminar de base de datos
-                RutaDAO.getInstance().eliminarRuta(seleccionada.getId());
+                EscrituraDiferida.getInstance().eliminarRuta(seleccionada);
 
                 // Actualizar tabla
                 listaRutas.remove(seleccionada);
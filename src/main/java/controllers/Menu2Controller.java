@@ -12,6 +12,7 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import javafx.util.StringConverter;
+import models.Escenario;
 import models.Grafo;
 import models.Parada;
 import models.Ruta;
@@ -51,6 +52,11 @@ public class Menu2Controller {
     private Parada origenSeleccionado;
     private Parada destinoSeleccionado;
 
+    // Escenario de eventos del origen actual: mientras no cambie el origen (ni el grafo) se reutiliza,
+    // así al probar varios destinos el grafo responde desde el árbol de caminos ya calculado.
+    private Escenario escenario;
+    private Parada origenEscenario;
+
     private GraphPane graphPane;
 
     private static final double COLAPSADO = 80;
@@ -353,7 +359,11 @@ public class Menu2Controller {
         String filtro = getFiltroString();
         String criterio = getCriterioNombre();
 
-        RutaMasCorta rm = grafo.obtenerMejorRuta(origenSeleccionado, destinoSeleccionado, filtro);
+        if (escenario == null || origenEscenario != origenSeleccionado || escenario.getVersion() != grafo.getVersion()) {
+            escenario = grafo.simularEscenario();
+            origenEscenario = origenSeleccionado;
+        }
+        RutaMasCorta rm = grafo.obtenerMejorRuta(origenSeleccionado, destinoSeleccionado, filtro, escenario);
 
         if (rm == null || rm.getRutas() == null || rm.getRutas().isEmpty()) {
             graphPane.clearCaminoIluminado();
@@ -419,6 +429,16 @@ public class Menu2Controller {
         graphPane.render(grafo, origenSeleccionado, destinoSeleccionado);
     }
 
+    /**
+     * refrescarRed
+     * Objetivo: volver a llenar los combos y redibujar cuando termina la carga de la red en segundo plano.
+     * Retorno: ninguno.
+     */
+    public void refrescarRed() {
+        recargarParadasCombo();
+        renderGraph();
+    }
+
     /**
      * actualizarResultadoDesdeRutaMasCorta
      * Objetivo: llenar panel de resultados con datos de la ruta encontrada.
@@ -0,0 +1,128 @@
+package models;
+
+import java.util.*;
+
+/**
+ * Nombre de la clase: AEstrellaLandmarks
+ *
+ * Objetivo:
+ * - Búsqueda dirigida al destino (A*) usando como heurística las cotas de Landmarks (ALT).
+ *   Cada parada se saca de la cola por g(v) + h(v), donde g es lo recorrido y h la cota inferior
+ *   de lo que falta. Así la búsqueda se "inclina" hacia el destino y asienta muchas menos paradas.
+ *
+ * Nota:
+ * - Los landmarks se piden al Grafo, que los precalcula una vez por versión y por filtro. Si no son
+ *   de la versión de la vista consultada, la consulta la resuelve DijkstraBidireccional.
+ * - Si por redondeo la heurística no es del todo consistente, una parada puede volver a entrar
+ *   a la cola con un g mejor; por eso no usamos un conjunto cerrado que lo impida.
+ */
+public class AEstrellaLandmarks {
+
+    public static final double INFINITO = Double.POSITIVE_INFINITY;
+
+    private int paradasAsentadas; // Cuántas paradas sacamos de la cola en la última consulta
+
+    public int getParadasAsentadas() {
+        return paradasAsentadas;
+    }
+
+    /**
+     * rutaMasCorta
+     * Objetivo: calcular el camino mínimo inicio -> destino con A* + landmarks sobre los pesos base.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    public RutaMasCorta rutaMasCorta(Grafo grafo, Parada inicio, Parada destino, String filtro) {
+        if (grafo == null || inicio == null || destino == null || (filtro == null || filtro.isBlank())) {
+            throw new IllegalArgumentException("grafo/inicio/destino/filtro no pueden ser null");
+        }
+
+        GrafoCSR csr = grafo.getCSR();
+        int s = csr.indiceDe(inicio);
+        int t = csr.indiceDe(destino);
+        if (s < 0 || t < 0) return null;
+
+        Landmarks landmarks = grafo.getLandmarks(filtro);
+        if (landmarks.getVersion() != csr.getVersion()) { // El grafo cambió entre medio: sin cota
+            return new DijkstraBidireccional().rutaMasCorta(grafo, inicio, destino, filtro);
+        }
+        List<Ruta> camino = buscar(csr, csr.pesos(filtro), null, landmarks, s, t);
+        if (camino == null) return null;
+        return Dijkstra.construirResultado(camino, filtro);
+    }
+
+    /**
+     * rutaMasCorta (con escenario)
+     * Objetivo: igual que rutaMasCorta pero con los pesos y cierres de un escenario de eventos.
+     *           Los landmarks (pesos base) siguen siendo cota válida porque los eventos solo suben pesos o cierran rutas.
+     *           Si el grafo cambió desde que se simuló el escenario, caemos a Dijkstra bidireccional
+     *           sobre la vista del escenario.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    public RutaMasCorta rutaMasCorta(Grafo grafo, Parada inicio, Parada destino, String filtro, Escenario escenario) {
+        if (grafo == null || escenario == null || inicio == null || destino == null || (filtro == null || filtro.isBlank())) {
+            throw new IllegalArgumentException("grafo/escenario/inicio/destino/filtro no pueden ser null");
+        }
+
+        GrafoCSR csr = escenario.getCSR();
+        int s = csr.indiceDe(inicio);
+        int t = csr.indiceDe(destino);
+        if (s < 0 || t < 0) return null;
+
+        Landmarks landmarks = grafo.getLandmarks(filtro);
+        if (landmarks.getVersion() != escenario.getVersion()) {
+            return new DijkstraBidireccional().rutaMasCorta(inicio, destino, filtro, escenario);
+        }
+        List<Ruta> camino = buscar(csr, escenario.pesos(filtro), escenario.cerradas(), landmarks, s, t);
+        if (camino == null) return null;
+        return escenario.resumen(camino, filtro);
+    }
+
+    /**
+     * buscar
+     * Objetivo: núcleo de A* sobre índices. g[] guarda lo recorrido y la cola se ordena por g + h.
+     *           Las rutas marcadas en "cerradas" (si viene) se saltan.
+     * Retorno: List<Ruta> o null si no hay camino.
+     */
+    List<Ruta> buscar(GrafoCSR csr, double[] pesos, BitSet cerradas, Landmarks landmarks, int s, int t) {
+        int n = csr.getNumParadas();
+        int[] offset = csr.getOffset();
+        int[] destinos = csr.getDestino();
+
+        double[] g = new double[n];
+        double[] h = new double[n];  // cache de la heurística, NaN = no calculada
+        int[] rutaPrev = new int[n];
+        Arrays.fill(g, INFINITO);
+        Arrays.fill(h, Double.NaN);
+        Arrays.fill(rutaPrev, -1);
+
+        HeapIndexado cola = new HeapIndexado(n);
+        paradasAsentadas = 0;
+
+        g[s] = 0;
+        h[s] = landmarks.cotaInferior(s, t);
+        if (h[s] == INFINITO) return null; // Los landmarks ya prueban que no hay camino
+        cola.insertarOActualizar(s, h[s]);
+
+        while (!cola.isEmpty()) {
+            int u = cola.extraerMin();
+            paradasAsentadas++;
+            if (u == t) break;
+
+            for (int e = offset[u]; e < offset[u + 1]; e++) {
+                if (cerradas != null && cerradas.get(e)) continue;
+                int v = destinos[e];
+                double ng = g[u] + pesos[e];
+                if (ng < g[v]) {
+                    if (Double.isNaN(h[v])) h[v] = landmarks.cotaInferior(v, t);
+                    if (h[v] == INFINITO) continue; // Desde v no se llega al destino
+                    g[v] = ng;
+                    rutaPrev[v] = e;
+                    cola.insertarOActualizar(v, ng + h[v]);
+                }
+            }
+        }
+
+        if (g[t] == INFINITO) return null;
+        return Dijkstra.reconstruirCamino(csr, rutaPrev, s, t);
+    }
+}
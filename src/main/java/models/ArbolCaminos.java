@@ -0,0 +1,67 @@
+package models;
+
+import java.util.List;
+
+/**
+ * Nombre de la clase: ArbolCaminos
+ *
+ * Objetivo:
+ * - Guardar el árbol completo de caminos mínimos desde un origen (distancia y ruta previa de cada parada)
+ *   para un filtro y un escenario. Con él, cualquier destino se responde caminando los predecesores,
+ *   en tiempo proporcional al largo del camino.
+ *
+ * Nota:
+ * - Lo arma y lo guarda el Grafo (ver Grafo.getArbol y CacheArboles); es inmutable.
+ */
+public class ArbolCaminos {
+
+    private final GrafoCSR csr;
+    private final int origen;
+    private final String filtro;
+    private final Escenario escenario;
+    private final double[] dist;
+    private final int[] rutaPrev;
+
+    /**
+     * ArbolCaminos
+     * Objetivo: correr un Dijkstra completo desde el origen con los pesos y cierres del escenario.
+     * Retorno: ninguno.
+     */
+    ArbolCaminos(Escenario escenario, int origen, String filtro) {
+        this.csr = escenario.getCSR();
+        this.origen = origen;
+        this.filtro = filtro;
+        this.escenario = escenario;
+        int n = csr.getNumParadas();
+        this.dist = new double[n];
+        this.rutaPrev = new int[n];
+        Dijkstra.arbolCompleto(csr, escenario.pesos(filtro), escenario.cerradas(), origen, false, dist, rutaPrev);
+    }
+
+    public Parada getOrigen() { return csr.getParada(origen); }
+
+    public String getFiltro() { return filtro; }
+
+    public Escenario getEscenario() { return escenario; }
+
+    /**
+     * distancia
+     * Objetivo: peso mínimo del origen a la parada (infinito si no se llega o no es de esta versión).
+     * Retorno: double.
+     */
+    public double distancia(Parada destino) {
+        int t = csr.indiceDe(destino);
+        return t < 0 ? Double.POSITIVE_INFINITY : dist[t];
+    }
+
+    /**
+     * camino
+     * Objetivo: rutas del origen al destino siguiendo los predecesores.
+     * Retorno: List<Ruta> (vacía si destino == origen) o null si no hay camino.
+     */
+    public List<Ruta> camino(Parada destino) {
+        int t = csr.indiceDe(destino);
+        if (t < 0 || dist[t] == Double.POSITIVE_INFINITY) return null;
+        return Dijkstra.reconstruirCamino(csr, rutaPrev, origen, t);
+    }
+}
@@ -0,0 +1,106 @@
+package models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Nombre de la clase: CacheArboles
+ *
+ * Objetivo:
+ * - Guardar los árboles de caminos mínimos de los orígenes usados hace poco, por filtro, versión y escenario.
+ *   En la pantalla principal el usuario elige un origen y prueba varios destinos: el primer clic arma
+ *   el árbol y los siguientes solo caminan predecesores.
+ *
+ * Nota:
+ * - Tiene un tope de árboles; cuando se llena sale el menos usado recientemente (LRU).
+ * - El escenario se compara con equals: un escenario vuelto a simular con la misma semilla reutiliza el árbol.
+ */
+public class CacheArboles {
+
+    public static final int CAPACIDAD_POR_DEFECTO = 32;
+
+    private final int capacidad;
+    private final LinkedHashMap<Clave, ArbolCaminos> arboles;
+    private long aciertos;
+    private long fallos;
+
+    /**
+     * Clave
+     * Objetivo: identificar un árbol por (origen, filtro, versión del grafo, escenario).
+     */
+    private static final class Clave {
+        final int origen;
+        final String filtro;
+        final long version;
+        final Escenario escenario;
+
+        Clave(int origen, String filtro, long version, Escenario escenario) {
+            this.origen = origen;
+            this.filtro = filtro;
+            this.version = version;
+            this.escenario = escenario;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Clave c)) return false;
+            return origen == c.origen && version == c.version && filtro.equals(c.filtro) && escenario.equals(c.escenario);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(origen, filtro, version, escenario);
+        }
+    }
+
+    public CacheArboles(int capacidad) {
+        if (capacidad <= 0) throw new IllegalArgumentException("La capacidad debe ser positiva");
+        this.capacidad = capacidad;
+        // accessOrder = true: cada consulta mueve el árbol al final, así el primero es el menos usado
+        this.arboles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Clave, ArbolCaminos> mayor) {
+                return size() > CacheArboles.this.capacidad;
+            }
+        };
+    }
+
+    /**
+     * obtener
+     * Objetivo: devolver el árbol guardado o armarlo con "calcular" y guardarlo.
+     *           El cálculo se hace fuera del candado para no frenar otras consultas.
+     * Retorno: ArbolCaminos.
+     */
+    public ArbolCaminos obtener(int origen, String filtro, Escenario escenario, Supplier<ArbolCaminos> calcular) {
+        Clave clave = new Clave(origen, filtro, escenario.getVersion(), escenario);
+        synchronized (this) {
+            ArbolCaminos a = arboles.get(clave);
+            if (a != null) { aciertos++; return a; }
+            fallos++;
+        }
+        ArbolCaminos nuevo = calcular.get();
+        synchronized (this) {
+            arboles.put(clave, nuevo);
+        }
+        return nuevo;
+    }
+
+    /**
+     * limpiar
+     * Objetivo: descartar todo (el grafo cambió y ningún árbol viejo puede volver a servir).
+     * Retorno: ninguno.
+     */
+    public synchronized void limpiar() {
+        arboles.clear();
+    }
+
+    public synchronized int size() { return arboles.size(); }
+
+    public int getCapacidad() { return capacidad; }
+
+    public synchronized long getAciertos() { return aciertos; }
+
+    public synchronized long getFallos() { return fallos; }
+}
@@ -0,0 +1,351 @@
+package models;
+
+import java.util.*;
+
+/**
+ * Nombre de la clase: CacheRutas
+ *
+ * Objetivo:
+ * - Guardar resultados de consultas (RutaMasCorta) por (inicio, destino, filtro, versión del grafo, escenario)
+ *   para que los pares populares se respondan sin volver a buscar.
+ * - Política estilo W-TinyLFU: una ventana LRU chica recibe todo lo nuevo; cuando algo sale de la ventana
+ *   solo entra a la zona principal si se pidió más seguido que la víctima que tendría que salir.
+ *   La frecuencia se estima con un Count-Min Sketch de contadores de 4 bits que se "envejece" a la mitad
+ *   cada cierto número de consultas, así lo que fue popular hace mucho deja de pesar.
+ * - La zona principal es un SLRU: "prueba" (entraron hace poco) y "protegida" (se volvieron a pedir).
+ *
+ * Nota:
+ * - El límite es de memoria estimada (bytes), no de cantidad de entradas.
+ * - La versión del grafo va en la clave: cuando el grafo cambia no se borra nada de golpe,
+ *   las entradas viejas simplemente dejan de pedirse y van saliendo solas.
+ * - La clave no guarda el Escenario (arrastra arreglos por ruta y la vista CSR de su versión, que así
+ *   quedarían vivos mientras la entrada siga en la caché): solo su semilla, su tabla de eventos y una
+ *   huella de sus rutas cerradas. Con la versión alcanzan para reconocer el mismo escenario.
+ * - Los RutaMasCorta guardados se comparten entre consultas: no se deben modificar.
+ */
+public class CacheRutas {
+
+    public static final long LIMITE_BYTES_POR_DEFECTO = 8L * 1024 * 1024; // 8 MB
+
+    // Reparto del límite: 1% ventana, el resto zona principal (80% de ella protegida)
+    private static final double PORCION_VENTANA = 0.01;
+    private static final double PORCION_PROTEGIDA = 0.80;
+
+    // Estimación de memoria de una entrada: clave + resultado + lista, y cada ruta del camino
+    private static final int BYTES_BASE = 256;
+    private static final int BYTES_POR_RUTA = 24;
+
+    private static final int VENTANA = 0, PRUEBA = 1, PROTEGIDA = 2;
+
+    /**
+     * Clave
+     * Objetivo: identificar una consulta. Las paradas van por índice en la vista CSR de esa versión.
+     *           escenario == null significa la red base estática (Contraction Hierarchy).
+     *           Del escenario solo se copian datos chicos (ver Nota de la clase).
+     */
+    static final class Clave {
+        final int inicio;
+        final int destino;
+        final String filtro;
+        final long version;
+        final boolean conEscenario;
+        final Long semilla;          // null = escenario sin simular (o sin escenario)
+        final TablaEventos tabla;    // inmutable y chica; se compara por identidad, como en Escenario.equals
+        final long huellaCerradas;
+        private final int hash;
+
+        Clave(int inicio, int destino, String filtro, long version, Escenario escenario) {
+            this.inicio = inicio;
+            this.destino = destino;
+            this.filtro = filtro;
+            this.version = version;
+            this.conEscenario = escenario != null;
+            this.semilla = escenario == null ? null : escenario.getSemilla();
+            this.tabla = escenario == null ? null : escenario.getTabla();
+            this.huellaCerradas = escenario == null ? 0 : escenario.getHuellaCerradas();
+            this.hash = Objects.hash(inicio, destino, filtro, version, conEscenario, semilla, huellaCerradas);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Clave c)) return false;
+            return inicio == c.inicio && destino == c.destino && version == c.version
+                    && conEscenario == c.conEscenario && huellaCerradas == c.huellaCerradas
+                    && filtro.equals(c.filtro) && Objects.equals(semilla, c.semilla) && tabla == c.tabla;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entrada {
+        final RutaMasCorta valor;
+        final int peso;
+        int zona;
+
+        Entrada(RutaMasCorta valor, int peso) {
+            this.valor = valor;
+            this.peso = peso;
+        }
+    }
+
+    private final long limiteBytes;
+    private final long limiteVentana;
+    private final long limitePrincipal;
+    private final long limiteProtegida;
+
+    // Cada zona en orden LRU: la primera clave es la menos usada recientemente
+    private final Map<Clave, Entrada> datos = new HashMap<>();
+    private final LinkedHashMap<Clave, Entrada> ventana = new LinkedHashMap<>();
+    private final LinkedHashMap<Clave, Entrada> prueba = new LinkedHashMap<>();
+    private final LinkedHashMap<Clave, Entrada> protegida = new LinkedHashMap<>();
+    private long pesoVentana, pesoPrueba, pesoProtegida;
+
+    private final FrecuenciaAproximada frecuencia;
+
+    private long aciertos;
+    private long fallos;
+    private long expulsiones; // entradas que salieron de la zona principal para hacer lugar
+    private long rechazos;    // candidatos de la ventana que no entraron a la zona principal
+
+    public CacheRutas(long limiteBytes) {
+        if (limiteBytes <= 0) throw new IllegalArgumentException("El límite de memoria debe ser positivo");
+        this.limiteBytes = limiteBytes;
+        this.limiteVentana = Math.max(BYTES_BASE, (long) (limiteBytes * PORCION_VENTANA));
+        this.limitePrincipal = Math.max(0, limiteBytes - limiteVentana);
+        this.limiteProtegida = (long) (limitePrincipal * PORCION_PROTEGIDA);
+        // Dimensionamos el sketch según cuántas entradas "típicas" caben
+        int entradasEstimadas = (int) Math.min(1 << 24, Math.max(64, limiteBytes / (BYTES_BASE + 8 * BYTES_POR_RUTA)));
+        this.frecuencia = new FrecuenciaAproximada(entradasEstimadas);
+    }
+
+    /**
+     * obtener
+     * Objetivo: buscar el resultado de la consulta. Toda consulta (acierto o fallo) suma a la frecuencia.
+     * Retorno: RutaMasCorta o null si no está.
+     */
+    synchronized RutaMasCorta obtener(Clave clave) {
+        frecuencia.incrementar(clave.hashCode());
+        Entrada e = datos.get(clave);
+        if (e == null) {
+            fallos++;
+            return null;
+        }
+        aciertos++;
+        switch (e.zona) {
+            case VENTANA -> { ventana.remove(clave); ventana.put(clave, e); }
+            case PROTEGIDA -> { protegida.remove(clave); protegida.put(clave, e); }
+            default -> {
+                // Se volvió a pedir estando a prueba: pasa a la zona protegida
+                prueba.remove(clave);
+                pesoPrueba -= e.peso;
+                e.zona = PROTEGIDA;
+                protegida.put(clave, e);
+                pesoProtegida += e.peso;
+                // Si la protegida se pasó, sus menos usadas bajan a prueba
+                while (pesoProtegida > limiteProtegida && !protegida.isEmpty()) {
+                    Map.Entry<Clave, Entrada> menos = primera(protegida);
+                    protegida.remove(menos.getKey());
+                    pesoProtegida -= menos.getValue().peso;
+                    menos.getValue().zona = PRUEBA;
+                    prueba.put(menos.getKey(), menos.getValue());
+                    pesoPrueba += menos.getValue().peso;
+                }
+            }
+        }
+        return e.valor;
+    }
+
+    /**
+     * guardar
+     * Objetivo: meter un resultado nuevo en la ventana. Lo que se desborde de la ventana
+     *           compite por entrar a la zona principal (ver admitir).
+     * Retorno: ninguno.
+     */
+    synchronized void guardar(Clave clave, RutaMasCorta valor) {
+        if (valor == null || datos.containsKey(clave)) return;
+        int peso = pesoDe(valor);
+        if (peso > limiteVentana && peso > limitePrincipal) return; // No cabe en ningún lado
+
+        Entrada e = new Entrada(valor, peso);
+        e.zona = VENTANA;
+        datos.put(clave, e);
+        ventana.put(clave, e);
+        pesoVentana += peso;
+
+        while (pesoVentana > limiteVentana && !ventana.isEmpty()) {
+            Map.Entry<Clave, Entrada> candidata = primera(ventana);
+            ventana.remove(candidata.getKey());
+            pesoVentana -= candidata.getValue().peso;
+            admitir(candidata.getKey(), candidata.getValue());
+        }
+    }
+
+    /**
+     * admitir
+     * Objetivo: decidir si la candidata que sale de la ventana entra a la zona principal.
+     *           Si no hay lugar, se compara su frecuencia con la de la víctima (la menos usada de prueba,
+     *           o de la protegida si prueba está vacía): gana la que se pidió más veces.
+     * Retorno: ninguno.
+     */
+    private void admitir(Clave clave, Entrada candidata) {
+        int frecCandidata = frecuencia.estimar(clave.hashCode());
+        while (pesoPrueba + pesoProtegida + candidata.peso > limitePrincipal) {
+            LinkedHashMap<Clave, Entrada> zonaVictima = !prueba.isEmpty() ? prueba : protegida;
+            if (zonaVictima.isEmpty()) break;
+            Map.Entry<Clave, Entrada> victima = primera(zonaVictima);
+            if (frecCandidata <= frecuencia.estimar(victima.getKey().hashCode())) {
+                datos.remove(clave);
+                rechazos++; // Nunca estuvo en la zona principal: no es una expulsión
+                return;
+            }
+            zonaVictima.remove(victima.getKey());
+            datos.remove(victima.getKey());
+            if (zonaVictima == prueba) pesoPrueba -= victima.getValue().peso;
+            else pesoProtegida -= victima.getValue().peso;
+            expulsiones++;
+        }
+        if (pesoPrueba + pesoProtegida + candidata.peso > limitePrincipal) { // Ni vaciando entra
+            datos.remove(clave);
+            rechazos++;
+            return;
+        }
+        candidata.zona = PRUEBA;
+        prueba.put(clave, candidata);
+        pesoPrueba += candidata.peso;
+    }
+
+    private static Map.Entry<Clave, Entrada> primera(LinkedHashMap<Clave, Entrada> zona) {
+        return zona.entrySet().iterator().next();
+    }
+
+    private static int pesoDe(RutaMasCorta rm) {
+        int rutas = rm.getRutas() == null ? 0 : rm.getRutas().size();
+        return BYTES_BASE + BYTES_POR_RUTA * rutas;
+    }
+
+    /**
+     * limpiar
+     * Objetivo: vaciar la caché y el historial de frecuencias (los contadores de aciertos se mantienen).
+     * Retorno: ninguno.
+     */
+    public synchronized void limpiar() {
+        datos.clear();
+        ventana.clear();
+        prueba.clear();
+        protegida.clear();
+        pesoVentana = pesoPrueba = pesoProtegida = 0;
+        frecuencia.reiniciar();
+    }
+
+    public long getLimiteBytes() { return limiteBytes; }
+
+    public synchronized long getPesoActual() { return pesoVentana + pesoPrueba + pesoProtegida; }
+
+    public synchronized int size() { return datos.size(); }
+
+    public synchronized long getAciertos() { return aciertos; }
+
+    public synchronized long getFallos() { return fallos; }
+
+    public synchronized long getExpulsiones() { return expulsiones; }
+
+    public synchronized long getRechazos() { return rechazos; }
+
+    /**
+     * getTasaAciertos
+     * Objetivo: proporción de consultas respondidas desde la caché.
+     * Retorno: double entre 0 y 1 (0 si todavía no hubo consultas).
+     */
+    public synchronized double getTasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "CacheRutas[entradas=%d, bytes=%d/%d, aciertos=%d, fallos=%d, tasa=%.3f, expulsiones=%d, rechazos=%d]",
+                datos.size(), getPesoActual(), limiteBytes, aciertos, fallos, getTasaAciertos(), expulsiones, rechazos);
+    }
+
+    /**
+     * Clase FrecuenciaAproximada
+     * Propósito: Count-Min Sketch con 4 filas de contadores de 4 bits (16 contadores por long).
+     * - estimar devuelve el mínimo de las 4 filas, que nunca es menor que la frecuencia real.
+     * - Cada 10 x tamaño incrementos se dividen todos los contadores a la mitad (envejecimiento).
+     */
+    private static final class FrecuenciaAproximada {
+        private static final long[] SEMILLAS = {
+                0x97cb3127L, 0xc2b2ae3dL, 0x27d4eb2fL, 0x165667b1L
+        };
+        private static final long MASCARA_MITAD = 0x7777777777777777L; // quita el bit alto de cada contador de 4 bits
+
+        private final long[] tabla;
+        private final int mascara;     // tabla.length - 1 (potencia de 2)
+        private final int tamanoMuestra;
+        private int incrementos;
+
+        FrecuenciaAproximada(int entradasEstimadas) {
+            int largo = Integer.highestOneBit(Math.max(16, entradasEstimadas) - 1) << 1;
+            tabla = new long[largo];
+            mascara = largo - 1;
+            tamanoMuestra = 10 * entradasEstimadas;
+        }
+
+        private int indice(int hash, int fila) {
+            long h = (hash + SEMILLAS[fila]) * SEMILLAS[fila];
+            h += h >>> 32;
+            return (int) h & mascara;
+        }
+
+        private static int desplazamiento(int hash, int fila) {
+            // Cada long tiene 16 contadores; cada fila usa uno distinto según los bits del hash
+            return (((hash >>> (fila * 8)) & 3) << 2 | fila) << 2;
+        }
+
+        int estimar(int hash) {
+            hash = mezclar(hash);
+            int min = 15;
+            for (int fila = 0; fila < 4; fila++) {
+                int valor = (int) ((tabla[indice(hash, fila)] >>> desplazamiento(hash, fila)) & 0xF);
+                min = Math.min(min, valor);
+            }
+            return min;
+        }
+
+        void incrementar(int hash) {
+            hash = mezclar(hash);
+            boolean subio = false;
+            for (int fila = 0; fila < 4; fila++) {
+                int i = indice(hash, fila);
+                int d = desplazamiento(hash, fila);
+                if (((tabla[i] >>> d) & 0xF) < 15) {
+                    tabla[i] += 1L << d;
+                    subio = true;
+                }
+            }
+            if (subio && ++incrementos >= tamanoMuestra) envejecer();
+        }
+
+        private void envejecer() {
+            for (int i = 0; i < tabla.length; i++) {
+                tabla[i] = (tabla[i] >>> 1) & MASCARA_MITAD;
+            }
+            incrementos /= 2;
+        }
+
+        void reiniciar() {
+            Arrays.fill(tabla, 0);
+            incrementos = 0;
+        }
+
+        private static int mezclar(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
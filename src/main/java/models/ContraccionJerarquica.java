@@ -0,0 +1,461 @@
+package models;
+
+import java.util.*;
+
+/**
+ * Nombre de la clase: ContraccionJerarquica
+ *
+ * Objetivo:
+ * - Motor de Contraction Hierarchies para la red base (distancia, tiempoBase, costoBase).
+ * - Preprocesamiento: contraemos las paradas de menos a más importantes. Al sacar una parada v,
+ *   por cada par u -> v -> w agregamos un atajo u -> w si no hay otro camino igual de corto
+ *   sin pasar por v (búsqueda de "testigo"). Cada parada queda con un rango (orden de contracción).
+ * - Consulta: Dijkstra bidireccional que solo sube de rango, desde el inicio hacia adelante
+ *   y desde el destino hacia atrás. Ambas búsquedas son muy chiquitas, por eso responde rapidísimo.
+ * - Los atajos recuerdan las dos aristas que reemplazan, así que se desempaquetan de vuelta
+ *   en la lista original de Ruta para armar el RutaMasCorta.
+ *
+ * Nota:
+ * - No considera eventos simulados ni rutas cerradas; es para la red estática. El Grafo la
+ *   precalcula una vez por versión y filtro (ver Grafo.getJerarquia).
+ */
+public class ContraccionJerarquica {
+
+    public static final double INFINITO = Double.POSITIVE_INFINITY;
+    private static final int LIMITE_TESTIGO = 100;         // Máximo de paradas asentadas por búsqueda de testigo
+    private static final int LIMITE_TESTIGO_ESTIMADO = 40; // Lo mismo, pero solo para estimar prioridades
+
+    private final long version;
+    private final String filtro;
+    private final GrafoCSR csr;
+    private final int n;
+    private final int[] rango;
+
+    // Aristas de la jerarquía (originales + atajos)
+    private int numAristas;
+    private int[] aristaDesde = new int[16];
+    private int[] aristaHacia = new int[16];
+    private double[] aristaPeso = new double[16];
+    private int[] hijoA = new int[16];        // primera mitad del atajo (-1 si es original)
+    private int[] hijoB = new int[16];        // segunda mitad del atajo (-1 si es original)
+    private int[] rutaOriginal = new int[16]; // índice de la ruta en GrafoCSR (-1 si es atajo)
+
+    // Grafo de búsqueda: solo aristas que suben de rango
+    private int[] offsetSubida, aristasSubida; // u -> w con rango[w] > rango[u], agrupadas por u
+    private int[] offsetBajada, aristasBajada; // u -> w con rango[u] > rango[w], agrupadas por w
+
+    // Buffers de consulta reutilizables (las consultas son synchronized)
+    private final double[] distAdelante, distAtras;
+    private final int[] prevAdelante, sigAtras;
+    private final HeapIndexado colaAdelante, colaAtras;
+    private final int[] tocadas;
+    private int numTocadas;
+
+    /**
+     * ContraccionJerarquica
+     * Objetivo: armar la jerarquía completa para el filtro dado a partir de la vista CSR.
+     * Retorno: ninguno.
+     */
+    ContraccionJerarquica(GrafoCSR csr, String filtro) {
+        this(csr, filtro, new int[csr.getNumParadas()]);
+
+        double[] pesos = csr.pesos(filtro);
+        int[] origen = csr.getOrigen();
+        int[] destino = csr.getDestino();
+        for (int e = 0; e < csr.getNumRutas(); e++) {
+            if (origen[e] == destino[e]) continue; // Los lazos nunca forman parte de un camino mínimo
+            agregarArista(origen[e], destino[e], pesos[e], -1, -1, e);
+        }
+
+        contraer();
+        armarGrafoDeBusqueda();
+    }
+
+    /**
+     * ContraccionJerarquica
+     * Objetivo: rearmar una jerarquía ya contraída (leída de una Instantanea): rangos y aristas
+     *           vienen hechos, solo se arma el grafo de búsqueda.
+     * Retorno: ninguno.
+     */
+    ContraccionJerarquica(GrafoCSR csr, String filtro, int[] rango, int numAristas, int[] aristaDesde, int[] aristaHacia,
+                          double[] aristaPeso, int[] hijoA, int[] hijoB, int[] rutaOriginal) {
+        this(csr, filtro, rango);
+        this.numAristas = numAristas;
+        this.aristaDesde = aristaDesde;
+        this.aristaHacia = aristaHacia;
+        this.aristaPeso = aristaPeso;
+        this.hijoA = hijoA;
+        this.hijoB = hijoB;
+        this.rutaOriginal = rutaOriginal;
+        armarGrafoDeBusqueda();
+    }
+
+    // Campos comunes y buffers de consulta
+    private ContraccionJerarquica(GrafoCSR csr, String filtro, int[] rango) {
+        this.csr = csr;
+        this.version = csr.getVersion();
+        this.filtro = filtro;
+        this.n = csr.getNumParadas();
+        this.rango = rango;
+
+        distAdelante = new double[n];
+        distAtras = new double[n];
+        prevAdelante = new int[n];
+        sigAtras = new int[n];
+        Arrays.fill(distAdelante, INFINITO);
+        Arrays.fill(distAtras, INFINITO);
+        colaAdelante = new HeapIndexado(n);
+        colaAtras = new HeapIndexado(n);
+        tocadas = new int[n];
+    }
+
+    public long getVersion() { return version; }
+
+    public String getFiltro() { return filtro; }
+
+    public int getNumAtajos() { return numAristas - csr.getNumRutas(); }
+
+    // Arreglos de la jerarquía (para guardarla en una Instantanea); solo valen las primeras numAristas casillas
+    int[] getRango() { return rango; }
+    int getNumAristas() { return numAristas; }
+    int[] getAristaDesde() { return aristaDesde; }
+    int[] getAristaHacia() { return aristaHacia; }
+    double[] getAristaPeso() { return aristaPeso; }
+    int[] getHijoA() { return hijoA; }
+    int[] getHijoB() { return hijoB; }
+    int[] getRutaOriginal() { return rutaOriginal; }
+
+    private int agregarArista(int desde, int hacia, double peso, int a, int b, int ruta) {
+        if (numAristas == aristaDesde.length) {
+            int cap = numAristas * 2;
+            aristaDesde = Arrays.copyOf(aristaDesde, cap);
+            aristaHacia = Arrays.copyOf(aristaHacia, cap);
+            aristaPeso = Arrays.copyOf(aristaPeso, cap);
+            hijoA = Arrays.copyOf(hijoA, cap);
+            hijoB = Arrays.copyOf(hijoB, cap);
+            rutaOriginal = Arrays.copyOf(rutaOriginal, cap);
+        }
+        aristaDesde[numAristas] = desde;
+        aristaHacia[numAristas] = hacia;
+        aristaPeso[numAristas] = peso;
+        hijoA[numAristas] = a;
+        hijoB[numAristas] = b;
+        rutaOriginal[numAristas] = ruta;
+        return numAristas++;
+    }
+
+    // ---------------- PREPROCESAMIENTO ----------------
+
+    // Listas de adyacencia mientras contraemos (índices de arista)
+    private int[][] salida, entrada;
+    private int[] numSalida, numEntrada;
+    private boolean[] contraida;
+
+    // Buffers de la búsqueda de testigos
+    private double[] distTestigo;
+    private int[] tocadasTestigo;
+    private HeapIndexado colaTestigo;
+
+    private void contraer() {
+        salida = new int[n][];
+        entrada = new int[n][];
+        numSalida = new int[n];
+        numEntrada = new int[n];
+        contraida = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            salida[v] = new int[4];
+            entrada[v] = new int[4];
+        }
+        for (int e = 0; e < numAristas; e++) enlazar(e);
+
+        distTestigo = new double[n];
+        Arrays.fill(distTestigo, INFINITO);
+        tocadasTestigo = new int[n];
+        colaTestigo = new HeapIndexado(n);
+
+        int[] vecinosContraidos = new int[n];
+        HeapIndexado orden = new HeapIndexado(n);
+        for (int v = 0; v < n; v++) orden.insertarOActualizar(v, prioridad(v, vecinosContraidos));
+
+        int siguienteRango = 0;
+        while (!orden.isEmpty()) {
+            int v = orden.extraerMin();
+
+            // Actualización perezosa: si su prioridad real ya no es la menor, vuelve a la cola
+            double p = prioridad(v, vecinosContraidos);
+            if (!orden.isEmpty() && p > orden.claveMin()) {
+                orden.insertarOActualizar(v, p);
+                continue;
+            }
+
+            atajos(v, true);
+            contraida[v] = true;
+            rango[v] = siguienteRango++;
+
+            // Avisamos a los vecinos y les quitamos las aristas hacia v, para que sus listas no crezcan sin fin
+            for (int i = 0; i < numSalida[v]; i++) {
+                int x = aristaHacia[salida[v][i]];
+                vecinosContraidos[x]++;
+                numEntrada[x] = compactar(entrada[x], numEntrada[x], aristaDesde);
+            }
+            for (int i = 0; i < numEntrada[v]; i++) {
+                int x = aristaDesde[entrada[v][i]];
+                vecinosContraidos[x]++;
+                numSalida[x] = compactar(salida[x], numSalida[x], aristaHacia);
+            }
+        }
+
+        // Ya no se necesitan
+        salida = entrada = null;
+        numSalida = numEntrada = null;
+        contraida = null;
+        distTestigo = null;
+        tocadasTestigo = null;
+        colaTestigo = null;
+    }
+
+    /**
+     * compactar
+     * Objetivo: quitar de una lista de aristas las que llegan (o salen) de paradas ya contraídas.
+     * Retorno: nuevo tamaño de la lista.
+     */
+    private int compactar(int[] lista, int tamano, int[] extremo) {
+        int k = 0;
+        for (int i = 0; i < tamano; i++) {
+            if (!contraida[extremo[lista[i]]]) lista[k++] = lista[i];
+        }
+        return k;
+    }
+
+    private void enlazar(int e) {
+        int u = aristaDesde[e], w = aristaHacia[e];
+        if (numSalida[u] == salida[u].length) salida[u] = Arrays.copyOf(salida[u], numSalida[u] * 2);
+        salida[u][numSalida[u]++] = e;
+        if (numEntrada[w] == entrada[w].length) entrada[w] = Arrays.copyOf(entrada[w], numEntrada[w] * 2);
+        entrada[w][numEntrada[w]++] = e;
+    }
+
+    /**
+     * prioridad
+     * Objetivo: medir qué tan "importante" es v: atajos que habría que crear menos aristas que
+     *           se eliminan (edge difference), más cuántos vecinos ya se contrajeron (reparte la contracción).
+     * Retorno: double (menor = se contrae antes).
+     */
+    private double prioridad(int v, int[] vecinosContraidos) {
+        int quitadas = 0;
+        for (int i = 0; i < numSalida[v]; i++) if (!contraida[aristaHacia[salida[v][i]]]) quitadas++;
+        for (int i = 0; i < numEntrada[v]; i++) if (!contraida[aristaDesde[entrada[v][i]]]) quitadas++;
+        return 2.0 * (atajos(v, false) - quitadas) + vecinosContraidos[v];
+    }
+
+    /**
+     * atajos
+     * Objetivo: por cada u -> v -> w (u, w sin contraer) ver si hace falta un atajo u -> w.
+     *           Con agregar = false solo cuenta (para la prioridad); con true los crea.
+     * Retorno: cantidad de atajos necesarios.
+     */
+    private int atajos(int v, boolean agregar) {
+        int cantidad = 0;
+        for (int i = 0; i < numEntrada[v]; i++) {
+            int a = entrada[v][i];
+            int u = aristaDesde[a];
+            if (contraida[u]) continue;
+
+            double maxSalida = -1;
+            for (int j = 0; j < numSalida[v]; j++) {
+                int b = salida[v][j];
+                int w = aristaHacia[b];
+                if (!contraida[w] && w != u) maxSalida = Math.max(maxSalida, aristaPeso[b]);
+            }
+            if (maxSalida < 0) continue;
+
+            buscarTestigos(u, v, aristaPeso[a] + maxSalida, agregar ? LIMITE_TESTIGO : LIMITE_TESTIGO_ESTIMADO);
+
+            for (int j = 0; j < numSalida[v]; j++) {
+                int b = salida[v][j];
+                int w = aristaHacia[b];
+                if (contraida[w] || w == u) continue;
+                double porV = aristaPeso[a] + aristaPeso[b];
+                if (distTestigo[w] > porV) {
+                    cantidad++;
+                    if (agregar) enlazar(agregarArista(u, w, porV, a, b, -1));
+                    // Evita duplicar el atajo si hay rutas paralelas v -> w
+                    if (distTestigo[w] == INFINITO) tocadasTestigo[numTocadasTestigo++] = w;
+                    distTestigo[w] = porV;
+                }
+            }
+            limpiarTestigos();
+        }
+        return cantidad;
+    }
+
+    /**
+     * buscarTestigos
+     * Objetivo: Dijkstra acotado desde u sin pasar por v ni por paradas contraídas.
+     *           Se corta al superar el límite de peso o de paradas asentadas.
+     * Retorno: ninguno (deja las distancias en distTestigo).
+     */
+    private void buscarTestigos(int u, int evitar, double limite, int maxAsentadas) {
+        distTestigo[u] = 0;
+        tocadasTestigo[numTocadasTestigo++] = u;
+        colaTestigo.insertarOActualizar(u, 0);
+        int asentadas = 0;
+        while (!colaTestigo.isEmpty()) {
+            if (colaTestigo.claveMin() > limite || asentadas >= maxAsentadas) break;
+            int x = colaTestigo.extraerMin();
+            asentadas++;
+            for (int i = 0; i < numSalida[x]; i++) {
+                int e = salida[x][i];
+                int y = aristaHacia[e];
+                if (y == evitar || contraida[y]) continue;
+                double nd = distTestigo[x] + aristaPeso[e];
+                if (nd < distTestigo[y]) {
+                    if (distTestigo[y] == INFINITO) tocadasTestigo[numTocadasTestigo++] = y;
+                    distTestigo[y] = nd;
+                    colaTestigo.insertarOActualizar(y, nd);
+                }
+            }
+        }
+        colaTestigo.limpiar();
+    }
+
+    private int numTocadasTestigo;
+
+    private void limpiarTestigos() {
+        for (int i = 0; i < numTocadasTestigo; i++) distTestigo[tocadasTestigo[i]] = INFINITO;
+        numTocadasTestigo = 0;
+    }
+
+    /**
+     * armarGrafoDeBusqueda
+     * Objetivo: pasar las aristas a dos CSR: las que suben (para la búsqueda desde el inicio)
+     *           y las que bajan agrupadas por su destino (para la búsqueda hacia atrás desde el destino).
+     * Retorno: ninguno.
+     */
+    private void armarGrafoDeBusqueda() {
+        offsetSubida = new int[n + 1];
+        offsetBajada = new int[n + 1];
+        for (int e = 0; e < numAristas; e++) {
+            int u = aristaDesde[e], w = aristaHacia[e];
+            if (rango[u] < rango[w]) offsetSubida[u + 1]++;
+            else offsetBajada[w + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsetSubida[v + 1] += offsetSubida[v];
+            offsetBajada[v + 1] += offsetBajada[v];
+        }
+        aristasSubida = new int[offsetSubida[n]];
+        aristasBajada = new int[offsetBajada[n]];
+        int[] sigSubida = Arrays.copyOf(offsetSubida, n);
+        int[] sigBajada = Arrays.copyOf(offsetBajada, n);
+        for (int e = 0; e < numAristas; e++) {
+            int u = aristaDesde[e], w = aristaHacia[e];
+            if (rango[u] < rango[w]) aristasSubida[sigSubida[u]++] = e;
+            else aristasBajada[sigBajada[w]++] = e;
+        }
+    }
+
+    // ---------------- CONSULTA ----------------
+
+    /**
+     * consultar
+     * Objetivo: camino mínimo s -> t subiendo por la jerarquía desde ambos extremos.
+     * Retorno: List<Ruta> con las rutas originales, o null si no hay camino.
+     */
+    public synchronized List<Ruta> consultar(int s, int t) {
+        distAdelante[s] = 0;
+        distAtras[t] = 0;
+        prevAdelante[s] = -1;
+        sigAtras[t] = -1;
+        tocadas[numTocadas++] = s;
+        if (t != s) tocadas[numTocadas++] = t;
+        colaAdelante.insertarOActualizar(s, 0);
+        colaAtras.insertarOActualizar(t, 0);
+
+        double mu = (s == t) ? 0 : INFINITO;
+        int encuentro = (s == t) ? s : -1;
+
+        while (colaAdelante.claveMin() < mu || colaAtras.claveMin() < mu) {
+            boolean adelante = colaAdelante.claveMin() <= colaAtras.claveMin();
+            HeapIndexado cola = adelante ? colaAdelante : colaAtras;
+            double[] dist = adelante ? distAdelante : distAtras;
+            double[] otra = adelante ? distAtras : distAdelante;
+            int[] previa = adelante ? prevAdelante : sigAtras;
+            int[] offset = adelante ? offsetSubida : offsetBajada;
+            int[] aristas = adelante ? aristasSubida : aristasBajada;
+            int[] vecino = adelante ? aristaHacia : aristaDesde;
+
+            int u = cola.extraerMin();
+            if (otra[u] != INFINITO && dist[u] + otra[u] < mu) {
+                mu = dist[u] + otra[u];
+                encuentro = u;
+            }
+            for (int k = offset[u]; k < offset[u + 1]; k++) {
+                int e = aristas[k];
+                int v = vecino[e];
+                double nd = dist[u] + aristaPeso[e];
+                if (nd < dist[v]) {
+                    if (distAdelante[v] == INFINITO && distAtras[v] == INFINITO) tocadas[numTocadas++] = v;
+                    dist[v] = nd;
+                    previa[v] = e;
+                    cola.insertarOActualizar(v, nd);
+                }
+            }
+        }
+
+        List<Ruta> camino = null;
+        if (encuentro >= 0) {
+            camino = new ArrayList<>();
+            // Del encuentro hacia el inicio (queda al revés y luego lo damos vuelta)
+            List<Integer> subida = new ArrayList<>();
+            for (int v = encuentro; v != s; v = aristaDesde[prevAdelante[v]]) subida.add(prevAdelante[v]);
+            for (int i = subida.size() - 1; i >= 0; i--) desempaquetar(subida.get(i), camino);
+            // Del encuentro hacia el destino
+            for (int v = encuentro; v != t; v = aristaHacia[sigAtras[v]]) desempaquetar(sigAtras[v], camino);
+        }
+
+        // Dejamos los buffers listos para la siguiente consulta
+        for (int i = 0; i < numTocadas; i++) {
+            distAdelante[tocadas[i]] = INFINITO;
+            distAtras[tocadas[i]] = INFINITO;
+        }
+        numTocadas = 0;
+        colaAdelante.limpiar();
+        colaAtras.limpiar();
+        return camino;
+    }
+
+    /**
+     * desempaquetar
+     * Objetivo: expandir una arista (posible atajo) en las rutas originales que representa, en orden.
+     * Retorno: ninguno (agrega al final de camino).
+     */
+    private void desempaquetar(int arista, List<Ruta> camino) {
+        Deque<Integer> pila = new ArrayDeque<>();
+        pila.push(arista);
+        while (!pila.isEmpty()) {
+            int e = pila.pop();
+            if (rutaOriginal[e] >= 0) {
+                camino.add(csr.getRuta(rutaOriginal[e]));
+            } else {
+                pila.push(hijoB[e]); // se procesa después
+                pila.push(hijoA[e]);
+            }
+        }
+    }
+
+    /**
+     * rutaMasCorta
+     * Objetivo: atajo para consultar directamente con paradas y armar el RutaMasCorta
+     *           con los valores base de cada ruta.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    public RutaMasCorta rutaMasCorta(Parada inicio, Parada destino) {
+        int s = csr.indiceDe(inicio);
+        int t = csr.indiceDe(destino);
+        if (s < 0 || t < 0) return null;
+        List<Ruta> camino = consultar(s, t);
+        if (camino == null) return null;
+        return Dijkstra.construirResultadoBase(camino, filtro);
+    }
+}
@@ -1,6 +1,7 @@
 package models;
 
 import java.util.*;
+import java.util.function.IntPredicate;
 
 public class Dijkstra {
 
@@ -11,70 +12,107 @@ public class Dijkstra {
             throw new IllegalArgumentException("grafo/inicio/destino/filtro no pueden ser null");
         }
 
-        // Reiniciar rutas para evitar acumulación de eventos
-        for (Parada p : grafo.getParadasList()) {
-            for (Ruta r : grafo.getRutasDeSalida(p)) {
-                r.resetValores();
-            }
+        // Trabajamos sobre la vista compacta del grafo: índices enteros y arreglos primitivos.
+        GrafoCSR csr = grafo.getCSR();
+        int origen = csr.indiceDe(inicio);
+        int objetivo = csr.indiceDe(destino);
+        if (origen < 0 || objetivo < 0) return null; // Alguna de las paradas no está en el grafo
+
+        double[] pesos = csr.pesos(filtro); // Pesos base según filtro (las rutas del grafo no cargan eventos)
+        List<Ruta> rutaCorta = buscar(csr, pesos, null, origen, objetivo);
+
+        if(rutaCorta == null) return null;
+
+        return construirResultado(rutaCorta, filtro);
+    }
+
+    /**
+     * rutaMasCorta (con escenario)
+     * Objetivo: camino mínimo bajo un escenario de eventos: pesos con los multiplicadores del escenario
+     *           y sin pasar por sus rutas cerradas. Como ningún peso es negativo, Dijkstra sigue siendo correcto.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    public RutaMasCorta rutaMasCorta(Parada inicio, Parada destino, String filtro, Escenario escenario) {
+        if(escenario == null || inicio == null || destino == null || (filtro == null || filtro.isBlank())) {
+            throw new IllegalArgumentException("escenario/inicio/destino/filtro no pueden ser null");
         }
 
+        GrafoCSR csr = escenario.getCSR();
+        int origen = csr.indiceDe(inicio);
+        int objetivo = csr.indiceDe(destino);
+        if (origen < 0 || objetivo < 0) return null;
+
+        List<Ruta> rutaCorta = buscar(csr, escenario.pesos(filtro), escenario.cerradas(), origen, objetivo);
+        if(rutaCorta == null) return null;
+
+        return escenario.resumen(rutaCorta, filtro);
+    }
+
+    /**
+     * buscar
+     * Objetivo: núcleo de Dijkstra sobre índices. Si viene la máscara "cerradas",
+     *           las rutas con su bit encendido no se recorren.
+     * Retorno: List<Ruta> o null si no hay camino.
+     */
+    static List<Ruta> buscar(GrafoCSR csr, double[] pesos, BitSet cerradas, int origen, int objetivo) {
+        int[] offset = csr.getOffset();
+        int[] direcciones = csr.getDestino();
+        int n = csr.getNumParadas();
+
         /// Se crean cuatro contenedores de datos
-        Map<Parada, Double> distancia = new HashMap<>(); // Se encarga de guardar la distancia que se necesita
+        double[] distancia = new double[n]; // Se encarga de guardar la distancia que se necesita
         // para llegar a x parada.
+        Arrays.fill(distancia, constante);
 
-        Map<Parada, Ruta> paradasPrev = new HashMap<>(); // Se encarga de guardar la ruta por la que se llegó a x parada,
-        // este mapa será útil para la parte de reconstrucción del camino o recorrido.
+        int[] rutaPrev = new int[n]; // Se encarga de guardar el índice de la ruta por la que se llegó a x parada,
+        // este arreglo será útil para la parte de reconstrucción del camino o recorrido.
+        Arrays.fill(rutaPrev, -1);
 
-        List<Parada> visitadas = new ArrayList<>(); // Marca las paradas ya visitadas
+        BitSet visitadas = new BitSet(n); // Marca las paradas ya visitadas
 
-        PriorityQueue<Nodo> paradasQueue = new PriorityQueue<>(Comparator.comparingDouble(n -> n.peso)); // Mediante la PriorityQueue se puede manejar de forma
-        //eficiente la organización en base al filtro suministrado
+        HeapIndexado paradasQueue = new HeapIndexado(n); // Cola de prioridad indexada: cada parada está a lo sumo una vez
+        // y cuando mejora su peso se actualiza en el mismo lugar (decrease-key)
 
-        paradasQueue.add(new Nodo(inicio,0)); // Se agrega la primera parada con peso 0, pues no hemos recorrido nada aún
-        distancia.put(inicio,0.0);
+        paradasQueue.insertarOActualizar(origen, 0); // Se agrega la primera parada con peso 0, pues no hemos recorrido nada aún
+        distancia[origen] = 0.0;
 
         while(!paradasQueue.isEmpty()) {
-            Nodo nodo = paradasQueue.poll(); // Obtenemos el nodo que se encuentre a la cabeza de la queue
-            Parada parada = nodo.getParada(); // Obtenemos la parada
-
-            if(visitadas.contains(parada)) { // Validamos de que la parada se encuentre en la lista de visitadas
-                continue;
-            }
-            visitadas.add(parada); // En caso de que no se encuentre, pues se agrega
+            int parada = paradasQueue.extraerMin(); // Obtenemos la parada que se encuentre a la cabeza de la cola
+            double pesoActual = distancia[parada];
+            visitadas.set(parada); // Ya no volverá a entrar a la cola con un peso mejor
 
-            if(parada == destino){
+            if(parada == objetivo){
                 break;
             }
 
-            for(Ruta r : grafo.getRutasDeSalida(parada)) { // Iteramos en base a las rutas que salen de la parada seleccionada
-
-                if(!r.isEstado()) continue; // Ignorar rutas cerradas
+            for(int e = offset[parada]; e < offset[parada + 1]; e++) { // Iteramos en base a las rutas que salen de la parada seleccionada
+                if (cerradas != null && cerradas.get(e)) continue; // Ruta cerrada: no se puede usar
+                int direccion = direcciones[e]; // Parada a la que apunta la ruta
+                if (visitadas.get(direccion)) continue;
+                double sumaPeso = pesoActual + pesos[e]; // Se calcula el peso necesario para llegar a esa parada
 
-                Double peso = r.getPesoByFiltro(filtro); // Se obtiene el peso de la ruta
-                if (peso == null) {
-                    throw new IllegalArgumentException("Filtro inválido: " + filtro);
-                }
-
-                Parada direccion = r.getDestino(); // Parada a la que apunta la ruta
-                Double sumaPeso = nodo.peso + peso; // Se calcula el peso necesario para llegar a esa parada
-
-                if(sumaPeso < distancia.getOrDefault(direccion, constante)) { // Se valida que este peso sea el menor que se guardado para esa parada
-                    distancia.put(direccion, sumaPeso); // Se agrega la parada y su distancia al mapa
-                    paradasQueue.add(new Nodo(direccion,sumaPeso)); // De igual forma se guarda en la queue
-                    paradasPrev.put(direccion,r); // Se guarda la ruta por donde se llegó a esa parada
+                if(sumaPeso < distancia[direccion]) { // Se valida que este peso sea el menor que se guardado para esa parada
+                    distancia[direccion] = sumaPeso; // Se guarda la distancia de la parada
+                    paradasQueue.insertarOActualizar(direccion, sumaPeso); // Se agrega o se baja su clave en la cola
+                    rutaPrev[direccion] = e; // Se guarda la ruta por donde se llegó a esa parada
                 }
             }
         }
 
-        Double finalDist = distancia.get(destino);
-        if (finalDist == null || finalDist.isInfinite()) {
+        if (Double.isInfinite(distancia[objetivo])) {
             return null; // No existe camino
         }
 
-        List<Ruta> rutaCorta = reconstruirCamino(paradasPrev,inicio,destino); // Se llama a la función para guardar la lista de rutas a seguir para llegar al destino
-
-        if(rutaCorta == null) return null;
+        return reconstruirCamino(csr, rutaPrev, origen, objetivo); // Se arma la lista de rutas a seguir para llegar al destino
+    }
 
+    /**
+     * construirResultado
+     * Objetivo: sumar tiempo, costo, distancia y peso del camino, tomar el primer evento
+     *           y contar transbordos para armar el RutaMasCorta. Lo comparten las variantes de Dijkstra.
+     * Retorno: RutaMasCorta.
+     */
+    static RutaMasCorta construirResultado(List<Ruta> rutaCorta, String filtro) {
         double totalTiempo = 0;
         double totalCosto = 0;
         double totalDistancia = 0;
@@ -85,7 +123,7 @@ public class Dijkstra {
             totalTiempo += r.getTiempo();
             totalCosto += r.getCosto();
             totalDistancia += r.getDistancia();
-            totalPeso += r.getPesoByFiltro(filtro);
+            totalPeso += r.getPesoByFiltro(filtro.toLowerCase());
 
             if(evento == null && r.getEvento() != null && !r.getEvento().isBlank()) {
                 evento = r.getEvento();
@@ -97,10 +135,163 @@ public class Dijkstra {
 
         RutaMasCorta rm = new RutaMasCorta(rutaCorta,totalTiempo,totalCosto,totalDistancia,totalPeso,filtro,evento);
         // Nuevo: contar transbordos también en distancia/tiempo/costo
-        rm.setTransbordos(contarTransbordos(rutaCorta));
+        rm.setTransbordos(Lineas.contarTransbordos(rutaCorta));
+        return rm;
+    }
+
+    /**
+     * construirResultadoBase
+     * Objetivo: igual que construirResultado pero sumando los valores base de cada ruta
+     *           (sin eventos), para los motores que trabajan sobre la red estática.
+     * Retorno: RutaMasCorta.
+     */
+    static RutaMasCorta construirResultadoBase(List<Ruta> rutaCorta, String filtro) {
+        double totalTiempo = 0;
+        double totalCosto = 0;
+        double totalDistancia = 0;
+
+        for (Ruta r : rutaCorta) {
+            totalTiempo += r.getTiempoBase();
+            totalCosto += r.getCostoBase();
+            totalDistancia += r.getDistancia();
+        }
+
+        double totalPeso = switch (filtro.toLowerCase()) {
+            case "tiempo" -> totalTiempo;
+            case "costo" -> totalCosto;
+            default -> totalDistancia;
+        };
+        String evento = filtro.equalsIgnoreCase("distancia") ? null : "Normal";
+
+        RutaMasCorta rm = new RutaMasCorta(rutaCorta, totalTiempo, totalCosto, totalDistancia, totalPeso, filtro, evento);
+        rm.setTransbordos(Lineas.contarTransbordos(rutaCorta));
         return rm;
     }
 
+    /**
+     * arbolCompleto
+     * Objetivo: correr Dijkstra desde un origen sin destino fijo y llenar las distancias a todas las paradas.
+     *           Con haciaAtras = true se recorren las rutas de entrada, es decir, se calcula
+     *           la distancia de cada parada HACIA el origen. Si rutaPrev no es null, guarda la ruta usada.
+     * Retorno: ninguno (llena dist y rutaPrev).
+     */
+    static void arbolCompleto(GrafoCSR csr, double[] pesos, int origen, boolean haciaAtras, double[] dist, int[] rutaPrev) {
+        arbolCompleto(csr, pesos, null, origen, haciaAtras, dist, rutaPrev);
+    }
+
+    /**
+     * arbolCompleto (con rutas cerradas)
+     * Objetivo: igual que la anterior, pero sin recorrer las rutas marcadas en "cerradas" (si viene).
+     * Retorno: ninguno (llena dist y rutaPrev).
+     */
+    static void arbolCompleto(GrafoCSR csr, double[] pesos, BitSet cerradas, int origen, boolean haciaAtras,
+                              double[] dist, int[] rutaPrev) {
+        int n = csr.getNumParadas();
+        int[] offset = haciaAtras ? csr.getOffsetEntrada() : csr.getOffset();
+        int[] rutasEntrada = csr.getRutasEntrada();
+        int[] vecino = haciaAtras ? csr.getOrigen() : csr.getDestino();
+
+        Arrays.fill(dist, constante);
+        if (rutaPrev != null) Arrays.fill(rutaPrev, -1);
+        BitSet asentadas = new BitSet(n);
+        HeapIndexado cola = new HeapIndexado(n);
+
+        dist[origen] = 0;
+        cola.insertarOActualizar(origen, 0);
+        while (!cola.isEmpty()) {
+            int u = cola.extraerMin();
+            asentadas.set(u);
+            for (int k = offset[u]; k < offset[u + 1]; k++) {
+                int e = haciaAtras ? rutasEntrada[k] : k;
+                if (cerradas != null && cerradas.get(e)) continue;
+                int v = vecino[e];
+                if (asentadas.get(v)) continue;
+                double nd = dist[u] + pesos[e];
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    if (rutaPrev != null) rutaPrev[v] = e;
+                    cola.insertarOActualizar(v, nd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Buffers de una búsqueda por índices: quien corre muchas búsquedas seguidas (una por origen o por corrida)
+     * los pide una vez y los reutiliza, así el ciclo no reserva memoria.
+     */
+    static class Buffers {
+        final double[] dist;
+        final int[] rutaPrev;
+        final BitSet asentadas;
+        final HeapIndexado cola;
+
+        Buffers(int n) {
+            dist = new double[n];
+            rutaPrev = new int[n];
+            asentadas = new BitSet(n);
+            cola = new HeapIndexado(n);
+        }
+    }
+
+    /**
+     * arbolHasta
+     * Objetivo: Dijkstra desde el origen hacia adelante, sin recorrer las rutas para las que "cerrada" da true,
+     *           que para apenas asentó todas las paradas de "objetivos". Lo comparten la matriz de viajes
+     *           (rutas cerradas del escenario) y Monte Carlo (cerradas del grafo o con accidente grave en la corrida).
+     * Retorno: ninguno (deja dist y rutaPrev en los buffers; las paradas no alcanzadas quedan en infinito y -1).
+     */
+    static void arbolHasta(GrafoCSR csr, double[] pesos, IntPredicate cerrada, int origen, BitSet objetivos, Buffers b) {
+        int[] offset = csr.getOffset();
+        int[] vecino = csr.getDestino();
+
+        Arrays.fill(b.dist, constante);
+        Arrays.fill(b.rutaPrev, -1);
+        b.asentadas.clear();
+        b.cola.limpiar();
+        int pendientes = objetivos.cardinality();
+
+        b.dist[origen] = 0;
+        b.cola.insertarOActualizar(origen, 0);
+        while (!b.cola.isEmpty() && pendientes > 0) {
+            int u = b.cola.extraerMin();
+            b.asentadas.set(u);
+            if (objetivos.get(u)) pendientes--;
+
+            for (int e = offset[u]; e < offset[u + 1]; e++) {
+                if (cerrada.test(e)) continue;
+                int v = vecino[e];
+                if (b.asentadas.get(v)) continue;
+                double nd = b.dist[u] + pesos[e];
+                if (nd < b.dist[v]) {
+                    b.dist[v] = nd;
+                    b.rutaPrev[v] = e;
+                    b.cola.insertarOActualizar(v, nd);
+                }
+            }
+        }
+    }
+
+    /**
+     * reconstruirCamino
+     * Objetivo: rearmar la lista de rutas desde el destino hacia el inicio usando
+     *           el índice de la ruta previa de cada parada (versión sobre GrafoCSR).
+     * Retorno: List<Ruta> o null si el destino no se alcanzó desde el inicio.
+     */
+    static List<Ruta> reconstruirCamino(GrafoCSR csr, int[] rutaPrev, int inicio, int destino) {
+        LinkedList<Ruta> camino = new LinkedList<>();
+        int actual = destino;
+        int[] origenes = csr.getOrigen();
+
+        while (actual != inicio) {
+            int e = rutaPrev[actual];
+            if (e < 0) return null; // Se cortó el camino antes de llegar al inicio
+            camino.addFirst(csr.getRuta(e));
+            actual = origenes[e];
+        }
+        return camino;
+    }
+
     public List<Ruta> reconstruirCamino(Map<Parada, Ruta> paradasPrev, Parada inicio, Parada destino) {
         List<Ruta> camino = new LinkedList<>();
         Parada actualParada = destino;
@@ -120,68 +311,4 @@ public class Dijkstra {
         }
         return camino;
     }
-
-    // Método para contar transbordos
-// Objetivo: calcular cuántas veces cambiamos de “línea” (tipo de transporte) a lo largo del camino.
-// Idea: para cada tramo, sacamos un identificador de línea. Preferimos el tipo de la parada de inicio;
-// si no hay, usamos el tipo del destino; si tampoco hay, caemos al nombre de la ruta.
-// Luego comparamos línea actual vs. línea anterior: si cambió, sumamos un transbordo.
-    private int contarTransbordos(List<Ruta> path) {
-        // Si el camino está vacío, obviamente no hay transbordos.
-        if (path == null || path.isEmpty()) return 0;
-
-        // Esta lambda nos da la “línea” de un tramo. Normalizamos a minúsculas y sin acentos
-        // para evitar que “Autobús” vs “Autobus” cuenten como diferentes.
-        java.util.function.Function<Ruta,String> lineaDe = r -> {
-            // Preferimos el tipo de la parada donde arrancamos el tramo.
-            Parada p = r.getInicio();
-            String tipo = (p != null && p.getTipo() != null && !p.getTipo().isBlank()) ? p.getTipo()
-                    // Si no hay tipo en inicio, probamos el del destino.
-                    : (r.getDestino()!=null && r.getDestino().getTipo()!=null && !r.getDestino().getTipo().isBlank()
-                    ? r.getDestino().getTipo()
-                    // Último recurso: el nombre de la ruta. Esto evita devolver null/empty.
-                    : r.getNombre());
-
-            // Normalizamos el texto para que “Autobús”, “autobus” y “AUTOBUS” sean la misma línea.
-            String s = java.text.Normalizer.normalize(tipo, java.text.Normalizer.Form.NFD)
-                    .replaceAll("\\p{InCombiningDiacriticalMarks}+", "")
-                    .toLowerCase(java.util.Locale.ROOT)
-                    .trim();
-
-            // Si queda vacío por cualquier cosa rara, usamos un guion para representar “sin línea”.
-            return s.isBlank() ? "-" : s;
-        };
-
-        // Recorremos el camino comparando línea anterior vs. actual.
-        String prev = null;
-        int trans = 0;
-        for (Ruta r : path) {
-            String lin = lineaDe.apply(r);
-            // Si ya teníamos una línea anterior y esta es diferente, ahí contamos un transbordo.
-            if (prev != null && !prev.equals(lin)) trans++;
-            prev = lin;
-        }
-
-        // Resultado final: número de cambios de línea a lo largo del camino.
-        return trans;
-    }
-
-    // Clase interna Nodo
-// Objetivo: representar una parada con su peso acumulado para la cola de prioridad.
-// Esta clase nos ayuda a manejar Dijkstra de forma cómoda, guardando aquí mismo
-// cuál parada estamos procesando y cuánto cuesta llegar hasta ella.
-    private static class Nodo {
-        // La parada asociada a este nodo.
-        private final Parada parada;
-        // El peso acumulado (según filtro: distancia/tiempo/costo) hasta esta parada.
-        private final double peso;
-
-        // Constructor sencillo: recibe la parada y el valor de peso acumulado.
-        public Nodo(Parada p, double peso){ this.parada = p; this.peso = peso; }
-
-        // Getter para la parada. Lo usamos cuando sacamos el nodo de la cola y necesitamos
-        // saber sobre cuál parada estamos iterando sus rutas de salida.
-        public Parada getParada(){ return parada; }
-    }
-
 }
\ No newline at end of file
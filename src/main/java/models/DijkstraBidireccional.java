@@ -0,0 +1,156 @@
+package models;
+
+import java.util.*;
+
+/**
+ * Nombre de la clase: DijkstraBidireccional
+ *
+ * Objetivo:
+ * - Responder consultas de un origen a un destino corriendo dos Dijkstra a la vez:
+ *   uno hacia adelante desde el inicio (rutas de salida) y otro hacia atrás desde el destino
+ *   (rutas de entrada). Cuando las dos fronteras se encuentran podemos parar.
+ * - En viajes largos cada búsqueda explora más o menos la mitad del radio, por lo que
+ *   se asientan bastantes menos paradas que con el Dijkstra normal.
+ *
+ * Nota:
+ * - Trabaja sobre GrafoCSR con pesos base o, con escenario, con sus pesos y sin sus rutas cerradas.
+ * - AEstrellaLandmarks la usa cuando sus landmarks no son de la versión de la vista que se consulta.
+ */
+public class DijkstraBidireccional {
+
+    public static final double INFINITO = Double.POSITIVE_INFINITY;
+
+    /**
+     * rutaMasCorta
+     * Objetivo: calcular el camino mínimo inicio -> destino con búsqueda bidireccional.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    public RutaMasCorta rutaMasCorta(Grafo grafo, Parada inicio, Parada destino, String filtro) {
+        if (grafo == null || inicio == null || destino == null || (filtro == null || filtro.isBlank())) {
+            throw new IllegalArgumentException("grafo/inicio/destino/filtro no pueden ser null");
+        }
+
+        GrafoCSR csr = grafo.getCSR();
+        int s = csr.indiceDe(inicio);
+        int t = csr.indiceDe(destino);
+        if (s < 0 || t < 0) return null;
+
+        List<Ruta> camino = buscar(csr, csr.pesos(filtro), null, s, t);
+        if (camino == null) return null;
+        return Dijkstra.construirResultado(camino, filtro);
+    }
+
+    /**
+     * rutaMasCorta (con escenario)
+     * Objetivo: igual que rutaMasCorta pero con los pesos del escenario y sin pasar por sus rutas cerradas.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    public RutaMasCorta rutaMasCorta(Parada inicio, Parada destino, String filtro, Escenario escenario) {
+        if (escenario == null || inicio == null || destino == null || (filtro == null || filtro.isBlank())) {
+            throw new IllegalArgumentException("escenario/inicio/destino/filtro no pueden ser null");
+        }
+
+        GrafoCSR csr = escenario.getCSR();
+        int s = csr.indiceDe(inicio);
+        int t = csr.indiceDe(destino);
+        if (s < 0 || t < 0) return null;
+
+        List<Ruta> camino = buscar(csr, escenario.pesos(filtro), escenario.cerradas(), s, t);
+        if (camino == null) return null;
+        return escenario.resumen(camino, filtro);
+    }
+
+    /**
+     * buscar
+     * Objetivo: núcleo de la búsqueda bidireccional sobre índices.
+     *           mu guarda el mejor camino completo visto hasta ahora (pasando por la parada "encuentro").
+     *           Se para cuando la suma de los mínimos de ambas colas ya no puede mejorar mu.
+     *           Las rutas marcadas en "cerradas" (si viene) no se usan en ninguna de las dos direcciones.
+     * Retorno: List<Ruta> o null si no hay camino.
+     */
+    static List<Ruta> buscar(GrafoCSR csr, double[] pesos, BitSet cerradas, int s, int t) {
+        int n = csr.getNumParadas();
+        int[] offset = csr.getOffset();
+        int[] destinos = csr.getDestino();
+        int[] offsetEntrada = csr.getOffsetEntrada();
+        int[] rutasEntrada = csr.getRutasEntrada();
+        int[] origenes = csr.getOrigen();
+
+        double[] distAdelante = new double[n];
+        double[] distAtras = new double[n];
+        int[] prevAdelante = new int[n]; // ruta por la que llegamos a v desde el inicio
+        int[] sigAtras = new int[n];     // ruta por la que salimos de v hacia el destino
+        Arrays.fill(distAdelante, INFINITO);
+        Arrays.fill(distAtras, INFINITO);
+        Arrays.fill(prevAdelante, -1);
+        Arrays.fill(sigAtras, -1);
+
+        BitSet asentadasAdelante = new BitSet(n);
+        BitSet asentadasAtras = new BitSet(n);
+        HeapIndexado colaAdelante = new HeapIndexado(n);
+        HeapIndexado colaAtras = new HeapIndexado(n);
+
+        distAdelante[s] = 0;
+        distAtras[t] = 0;
+        colaAdelante.insertarOActualizar(s, 0);
+        colaAtras.insertarOActualizar(t, 0);
+
+        double mu = (s == t) ? 0 : INFINITO;
+        int encuentro = (s == t) ? s : -1;
+
+        while (!colaAdelante.isEmpty() && !colaAtras.isEmpty()) {
+            // Criterio de parada: ningún camino nuevo puede ser mejor que mu
+            if (colaAdelante.claveMin() + colaAtras.claveMin() >= mu) break;
+
+            // Avanzamos por el lado que tenga la frontera más cercana
+            if (colaAdelante.claveMin() <= colaAtras.claveMin()) {
+                int u = colaAdelante.extraerMin();
+                asentadasAdelante.set(u);
+                for (int e = offset[u]; e < offset[u + 1]; e++) {
+                    if (cerradas != null && cerradas.get(e)) continue;
+                    int v = destinos[e];
+                    if (asentadasAdelante.get(v)) continue;
+                    double nd = distAdelante[u] + pesos[e];
+                    if (nd < distAdelante[v]) {
+                        distAdelante[v] = nd;
+                        prevAdelante[v] = e;
+                        colaAdelante.insertarOActualizar(v, nd);
+                        if (distAtras[v] + nd < mu) { mu = distAtras[v] + nd; encuentro = v; }
+                    }
+                }
+            } else {
+                int u = colaAtras.extraerMin();
+                asentadasAtras.set(u);
+                for (int k = offsetEntrada[u]; k < offsetEntrada[u + 1]; k++) {
+                    int e = rutasEntrada[k];
+                    if (cerradas != null && cerradas.get(e)) continue;
+                    int v = origenes[e];
+                    if (asentadasAtras.get(v)) continue;
+                    double nd = distAtras[u] + pesos[e];
+                    if (nd < distAtras[v]) {
+                        distAtras[v] = nd;
+                        sigAtras[v] = e;
+                        colaAtras.insertarOActualizar(v, nd);
+                        if (distAdelante[v] + nd < mu) { mu = distAdelante[v] + nd; encuentro = v; }
+                    }
+                }
+            }
+        }
+
+        if (encuentro < 0) return null; // Las fronteras nunca se tocaron
+
+        // Primera mitad: del inicio al punto de encuentro
+        List<Ruta> camino = Dijkstra.reconstruirCamino(csr, prevAdelante, s, encuentro);
+        if (camino == null) return null;
+
+        // Segunda mitad: del punto de encuentro al destino siguiendo las rutas de la búsqueda hacia atrás
+        int actual = encuentro;
+        while (actual != t) {
+            int e = sigAtras[actual];
+            if (e < 0) return null;
+            camino.add(csr.getRuta(e));
+            actual = destinos[e];
+        }
+        return camino;
+    }
+}
@@ -0,0 +1,271 @@
+package models;
+
+import java.util.*;
+
+/**
+ * Nombre de la clase: Escenario
+ *
+ * Objetivo:
+ * - Representar una "foto" de eventos sobre la red (lluvia, retrasos, accidentes) sin tocar las rutas del grafo.
+ *   Por cada ruta de la vista CSR guardamos el evento y los multiplicadores de tiempo y costo,
+ *   y en un BitSet las rutas cerradas.
+ * - Los algoritmos leen los pesos a través del escenario, así varias consultas pueden correr a la vez
+ *   y se pueden comparar varios escenarios lado a lado.
+ *
+ * Nota:
+ * - Es inmutable: los arreglos que entrega (pesos, cerradas) no se deben modificar.
+ * - Pertenece a una versión del grafo; si el grafo cambia hay que simular uno nuevo.
+ * - Si se simuló con una semilla, la guarda: con la misma semilla y tabla de eventos cada ruta recibe
+ *   el mismo evento, también en otra ejecución o con el grafo cargado en otro orden, porque el sorteo
+ *   depende solo de la semilla y del id de la ruta en la base (no de su posición en la vista CSR).
+ *   Las rutas que todavía no se guardaron (id 0) usan su posición en la vista: se sortean por separado,
+ *   pero solo se repiten dentro de la misma vista hasta que reciben su id.
+ * - Dos escenarios son iguales (equals) si salen de la misma vista, semilla, tabla y rutas cerradas;
+ *   así las cachés reconocen una consulta repetida aunque el escenario se haya vuelto a simular.
+ */
+public final class Escenario {
+
+    // Eventos posibles: nombre y multiplicadores de tiempo y costo (mismo índice)
+    public static final byte NORMAL = 0;
+    public static final byte LLUVIA = 1;
+    public static final byte RETRASO = 2;
+    public static final byte ACCIDENTE_LEVE = 3;
+    public static final byte ACCIDENTE_GRAVE = 4;
+
+    static final String[] NOMBRE_EVENTO = {
+            "Normal", "Lluvia", "Retraso", "Accidente leve (Retraso severo)", "Accidente grave (Ruta cerrada)"
+    };
+    static final double[] FACTOR_TIEMPO = {1.0, 1.2, 1.5, 2.0, 1.0};
+    static final double[] FACTOR_COSTO = {1.0, 1.1, 1.2, 1.3, 1.0};
+
+    private final GrafoCSR csr;
+    private final Long semilla;           // semilla de la simulación (null si no se simuló)
+    private final TablaEventos tabla;     // tabla con la que se simuló (null si no se simuló)
+    private final int hash;
+    private final long huellaCerradas;    // resumen de 64 bits de "cerradas" (ver CacheRutas.Clave)
+    private final byte[] evento;          // evento de cada ruta
+    private final double[] factorTiempo;  // multiplicador del tiempo base de cada ruta
+    private final double[] factorCosto;   // multiplicador del costo base de cada ruta
+    private final BitSet cerradas;        // rutas cerradas (accidente grave o cerradas en el grafo)
+
+    // Pesos por filtro ya multiplicados, se arman la primera vez que se piden
+    private volatile double[] pesosTiempo;
+    private volatile double[] pesosCosto;
+
+    /**
+     * Escenario
+     * Objetivo: armar el escenario a partir del evento de cada ruta y las rutas que ya estaban cerradas en el grafo.
+     * Retorno: ninguno.
+     */
+    Escenario(GrafoCSR csr, Long semilla, TablaEventos tabla, byte[] evento, BitSet cerradasGrafo) {
+        int m = csr.getNumRutas();
+        this.csr = csr;
+        this.semilla = semilla;
+        this.tabla = tabla;
+        this.evento = evento;
+        this.factorTiempo = new double[m];
+        this.factorCosto = new double[m];
+        this.cerradas = cerradasGrafo == null ? new BitSet(m) : (BitSet) cerradasGrafo.clone();
+
+        for (int e = 0; e < m; e++) {
+            factorTiempo[e] = FACTOR_TIEMPO[evento[e]];
+            factorCosto[e] = FACTOR_COSTO[evento[e]];
+            if (evento[e] == ACCIDENTE_GRAVE) cerradas.set(e);
+        }
+        this.hash = Objects.hash(csr.getVersion(), semilla, cerradas);
+        this.huellaCerradas = huella(cerradas);
+    }
+
+    /**
+     * huella
+     * Objetivo: resumir el conjunto de rutas cerradas en 64 bits (mezcla SplitMix64 de cada palabra del BitSet),
+     *           para que una clave de caché no tenga que guardar el BitSet entero.
+     * Retorno: long.
+     */
+    private static long huella(BitSet cerradas) {
+        long h = 0x9E3779B97F4A7C15L;
+        long[] palabras = cerradas.toLongArray();
+        for (int i = 0; i < palabras.length; i++) {
+            long z = h ^ palabras[i] ^ ((long) i << 32);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            h = z ^ (z >>> 31);
+        }
+        return h;
+    }
+
+    /**
+     * base
+     * Objetivo: escenario sin eventos (todo normal) con las rutas cerradas del grafo.
+     * Retorno: Escenario.
+     */
+    public static Escenario base(GrafoCSR csr, BitSet cerradasGrafo) {
+        return new Escenario(csr, null, null, new byte[csr.getNumRutas()], cerradasGrafo);
+    }
+
+    /**
+     * simular
+     * Objetivo: sortear un evento por ruta según la tabla a partir de la semilla.
+     * Retorno: Escenario.
+     */
+    public static Escenario simular(GrafoCSR csr, BitSet cerradasGrafo, long semilla, TablaEventos tabla) {
+        byte[] evento = new byte[csr.getNumRutas()];
+        sortearEventos(csr, semilla, tabla, evento);
+        return new Escenario(csr, semilla, tabla, evento, cerradasGrafo);
+    }
+
+    /**
+     * sortearEventos
+     * Objetivo: llenar el arreglo con un evento por ruta. Lo comparten el escenario suelto
+     *           y la simulación Monte-Carlo, que reutiliza el mismo arreglo en cada corrida.
+     *           El número de cada ruta sale de mezclar la semilla con el id de la ruta, así no depende
+     *           del orden en que quedaron las rutas en la vista CSR.
+     * Retorno: ninguno.
+     */
+    static void sortearEventos(GrafoCSR csr, long semilla, TablaEventos tabla, byte[] evento) {
+        for (int e = 0; e < evento.length; e++) {
+            long id = csr.getRuta(e).getId();
+            evento[e] = tabla.sortear(uniforme(semilla, id > 0 ? id : -1L - e)); // sin id: posición (negativa, no choca)
+        }
+    }
+
+    /**
+     * uniforme
+     * Objetivo: número en [0, 1) que depende solo de la semilla y del id. Usa la misma mezcla que
+     *           SplittableRandom (SplitMix64), sin crear un generador por ruta en cada corrida.
+     * Retorno: double.
+     */
+    static double uniforme(long semilla, long id) {
+        long z = semilla + (id + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    public long getVersion() { return csr.getVersion(); }
+
+    public Long getSemilla() { return semilla; }
+
+    public TablaEventos getTabla() { return tabla; }
+
+    long getHuellaCerradas() { return huellaCerradas; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Escenario esc)) return false;
+        return csr == esc.csr && Objects.equals(semilla, esc.semilla) && tabla == esc.tabla && cerradas.equals(esc.cerradas);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    public GrafoCSR getCSR() { return csr; }
+
+    /**
+     * pesos
+     * Objetivo: pesos de cada ruta según el filtro con los eventos aplicados.
+     *           La distancia no cambia con los eventos, así que se usa la base.
+     * Retorno: double[] indexado por ruta (no modificar).
+     */
+    public double[] pesos(String filtro) {
+        switch (filtro.toLowerCase(Locale.ROOT)) {
+            case "distancia" -> { return csr.getDistancia(); }
+            case "tiempo" -> {
+                double[] w = pesosTiempo;
+                if (w == null) pesosTiempo = w = multiplicar(csr.getTiempo(), factorTiempo);
+                return w;
+            }
+            case "costo" -> {
+                double[] w = pesosCosto;
+                if (w == null) pesosCosto = w = multiplicar(csr.getCosto(), factorCosto);
+                return w;
+            }
+            default -> throw new IllegalArgumentException("Filtro inválido: " + filtro);
+        }
+    }
+
+    private static double[] multiplicar(double[] base, double[] factor) {
+        double[] w = new double[base.length];
+        for (int e = 0; e < base.length; e++) w[e] = base[e] * factor[e];
+        return w;
+    }
+
+    /**
+     * cerradas
+     * Objetivo: máscara interna de rutas cerradas para los algoritmos (no modificar).
+     * Retorno: BitSet.
+     */
+    BitSet cerradas() {
+        return cerradas;
+    }
+
+    /**
+     * getCerradas
+     * Objetivo: copia de la máscara de rutas cerradas para quien la quiera usar fuera del modelo.
+     * Retorno: BitSet.
+     */
+    public BitSet getCerradas() {
+        return (BitSet) cerradas.clone();
+    }
+
+    public boolean isCerrada(int e) { return cerradas.get(e); }
+
+    public double getTiempo(int e) { return csr.getTiempo()[e] * factorTiempo[e]; }
+
+    public double getCosto(int e) { return csr.getCosto()[e] * factorCosto[e]; }
+
+    public String getEvento(int e) { return NOMBRE_EVENTO[evento[e]]; }
+
+    /**
+     * indiceDe
+     * Objetivo: índice de la ruta en la vista del escenario (-1 si la ruta no es de esta versión).
+     * Retorno: int.
+     */
+    public int indiceDe(Ruta r) {
+        int e = r.getIndice();
+        return (e >= 0 && e < csr.getNumRutas() && csr.getRuta(e) == r) ? e : -1;
+    }
+
+    /**
+     * resumen
+     * Objetivo: sumar tiempo, costo y distancia del camino con los eventos del escenario,
+     *           tomar el primer evento que no sea "Normal" y contar transbordos.
+     *           Para distancia el evento se ignora.
+     * Retorno: RutaMasCorta.
+     */
+    public RutaMasCorta resumen(List<Ruta> camino, String filtro) {
+        double totalTiempo = 0, totalCosto = 0, totalDistancia = 0;
+        String ev = NOMBRE_EVENTO[NORMAL];
+
+        for (Ruta r : camino) {
+            int e = indiceDe(r);
+            totalDistancia += r.getDistancia();
+            if (e < 0) { // Ruta de otra versión: usamos sus valores base
+                totalTiempo += r.getTiempoBase();
+                totalCosto += r.getCostoBase();
+                continue;
+            }
+            totalTiempo += getTiempo(e);
+            totalCosto += getCosto(e);
+            if (evento[e] != NORMAL && ev.equals(NOMBRE_EVENTO[NORMAL])) ev = getEvento(e);
+        }
+
+        int trans = Lineas.contarTransbordos(camino);
+        double totalPeso = switch (filtro.toLowerCase(Locale.ROOT)) {
+            case "tiempo" -> totalTiempo;
+            case "costo" -> totalCosto;
+            case "transbordos" -> trans;
+            default -> totalDistancia;
+        };
+        if (filtro.equalsIgnoreCase("distancia")) ev = null;
+
+        RutaMasCorta rm = new RutaMasCorta(camino, totalTiempo, totalCosto, totalDistancia, totalPeso, filtro, ev);
+        rm.setTransbordos(trans);
+        rm.setSemillaEscenario(semilla);
+        return rm;
+    }
+}
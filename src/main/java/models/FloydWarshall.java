@@ -1,91 +1,297 @@
 package models;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class FloydWarshall {
 
     public static Map<Parada, Map<Parada, List<Ruta>>> calcular(Grafo grafo, String filtro) {
+        return calcularMatriz(grafo, filtro).comoMapa();
+    }
 
-        List<Parada> paradas = grafo.getParadasList();
-        int n = paradas.size();
+    // Tamaño de bloque (en paradas): un bloque de 64x64 doubles son 32 KB, cabe en la caché L1/L2
+    static final int TAMANO_BLOQUE = 64;
+    // A partir de cuántas paradas conviene la versión por bloques en paralelo
+    static final int UMBRAL_PARALELO = 256;
+    // Memoria máxima de las dos matrices (8 bytes de distancia + 4 de next-hop por par).
+    // Por debajo de este límite n² entra holgado en un int, así que los índices i * n + j no desbordan.
+    static final long LIMITE_BYTES = 512L << 20;
 
-        double[][] dist = new double[n][n];
-        List<Ruta>[][] next = new List[n][n];
+    /**
+     * cabe
+     * Objetivo: decidir si las matrices de n paradas entran en LIMITE_BYTES.
+     *           La cuenta se hace en long: con n > 46 340 el n * n en int ya desborda.
+     * Retorno: boolean.
+     */
+    public static boolean cabe(int n) {
+        return 12L * n * n <= LIMITE_BYTES;
+    }
 
-        // Inicializar matriz y resetear rutas
-        for (int i = 0; i < n; i++) {
-            Parada pi = paradas.get(i);
-            for (Ruta r : grafo.getRutasDeSalida(pi)) {
-                r.resetValores(); // Evita acumulación de penalizaciones
-            }
+    /**
+     * celdas
+     * Objetivo: cantidad de pares (n²) para reservar las matrices, rechazando las redes que no caben.
+     * Retorno: int.
+     */
+    private static int celdas(int n) {
+        if (!cabe(n))
+            throw new IllegalStateException("La red tiene demasiadas paradas para Floyd-Warshall: " + n);
+        return n * n;
+    }
+
+    /**
+     * calcularMatriz
+     * Objetivo: correr Floyd-Warshall guardando solo números: la matriz de distancias y,
+     *           para cada par (i, j), el índice de la primera ruta del camino (next-hop).
+     *           El camino completo se arma recién cuando se pide, siguiendo esos índices.
+     *           Antes copiábamos listas de rutas en cada mejora del triple ciclo, lo que generaba
+     *           muchísima basura; ahora el ciclo no reserva memoria.
+     *           Con grafos grandes usamos la versión por bloques en paralelo.
+     *           Si las matrices no caben en LIMITE_BYTES lanza IllegalStateException (ver cabe).
+     * Retorno: Resultado con las matrices.
+     */
+    public static Resultado calcularMatriz(Grafo grafo, String filtro) {
+        GrafoCSR csr = grafo.getCSR();
+        if (csr.getNumParadas() >= UMBRAL_PARALELO) {
+            return calcularMatrizParalela(grafo, filtro, ForkJoinPool.commonPool());
         }
 
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                if (i == j) {
-                    dist[i][j] = 0;
-                    next[i][j] = new ArrayList<>();
-                } else {
-                    dist[i][j] = Double.POSITIVE_INFINITY;
-                    next[i][j] = null;
+        int n = csr.getNumParadas();
+        int celdas = celdas(n);
+        double[] dist = new double[celdas];
+        int[] siguiente = new int[celdas];
+        inicializar(csr, filtro, dist, siguiente);
+
+        // Algoritmo Floyd-Warshall
+        for (int k = 0; k < n; k++) {
+            int filaK = k * n;
+            for (int i = 0; i < n; i++) {
+                int filaI = i * n;
+                double dik = dist[filaI + k];
+                if (dik == Double.POSITIVE_INFINITY) continue; // Nada que mejorar pasando por k
+                int sigIK = siguiente[filaI + k];
+                for (int j = 0; j < n; j++) {
+                    if (dik + dist[filaK + j] < dist[filaI + j]) {
+                        dist[filaI + j] = dik + dist[filaK + j];
+                        siguiente[filaI + j] = sigIK; // Para ir de i a j primero vamos de i hacia k
+                    }
                 }
             }
         }
 
-        // Cargar rutas del grafo
-        for (int i = 0; i < n; i++) {
-            Parada p = paradas.get(i);
+        return new Resultado(csr, dist, siguiente);
+    }
 
-            for (Ruta r : grafo.getRutasDeSalida(p)) {
+    /**
+     * calcularMatrizParalela
+     * Objetivo: Floyd-Warshall por bloques (tiles) de TAMANO_BLOQUE x TAMANO_BLOQUE sobre la matriz plana.
+     *           Por cada bloque diagonal kb hacemos las tres fases clásicas:
+     *           1) el bloque (kb, kb) solo;
+     *           2) los bloques de la fila kb y de la columna kb, en paralelo (dependen solo de la fase 1);
+     *           3) todos los demás bloques, en paralelo (dependen de la fila y columna kb).
+     *           Cada bloque se recorre completo en caché en vez de saltar por toda la fila de k.
+     * Retorno: Resultado con las matrices.
+     */
+    public static Resultado calcularMatrizParalela(Grafo grafo, String filtro, ForkJoinPool pool) {
+        GrafoCSR csr = grafo.getCSR();
+        int n = csr.getNumParadas();
+        int celdas = celdas(n);
+        double[] dist = new double[celdas];
+        int[] siguiente = new int[celdas];
+        inicializar(csr, filtro, dist, siguiente);
 
-                if (!r.isEstado()) continue; // Ignorar rutas cerradas
+        int bloques = (n + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE;
+        for (int kb = 0; kb < bloques; kb++) {
+            final int k = kb;
 
-                int j = paradas.indexOf(r.getDestino());
+            // Fase 1: bloque diagonal
+            relajarBloque(dist, siguiente, n, k, k, k);
 
-                double peso = switch (filtro.toLowerCase()) {
-                    case "distancia" -> r.getDistancia();
-                    case "tiempo" -> r.getTiempo();
-                    case "costo" -> r.getCosto();
-                    default -> throw new IllegalArgumentException("Filtro inválido");
-                };
+            // Fase 2: fila y columna del bloque diagonal
+            List<ForkJoinTask<?>> fase2 = new ArrayList<>();
+            for (int b = 0; b < bloques; b++) {
+                if (b == k) continue;
+                final int otro = b;
+                fase2.add(ForkJoinTask.adapt(() -> relajarBloque(dist, siguiente, n, k, otro, k)));
+                fase2.add(ForkJoinTask.adapt(() -> relajarBloque(dist, siguiente, n, otro, k, k)));
+            }
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(fase2)));
 
-                if (peso < dist[i][j]) {
-                    dist[i][j] = peso;
-                    next[i][j] = new ArrayList<>(List.of(r));
-                }
+            // Fase 3: el resto de bloques, una tarea por fila de bloques
+            List<ForkJoinTask<?>> fase3 = new ArrayList<>();
+            for (int ib = 0; ib < bloques; ib++) {
+                if (ib == k) continue;
+                final int fila = ib;
+                fase3.add(ForkJoinTask.adapt(() -> {
+                    for (int jb = 0; jb < bloques; jb++) {
+                        if (jb != k) relajarBloque(dist, siguiente, n, fila, jb, k);
+                    }
+                }));
             }
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(fase3)));
         }
 
-        // Algoritmo Floyd-Warshall
-        for (int k = 0; k < n; k++) {
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j < n; j++) {
-                    if (dist[i][k] + dist[k][j] < dist[i][j]) {
-                        dist[i][j] = dist[i][k] + dist[k][j];
-
-                        List<Ruta> nuevoCamino = new ArrayList<>();
-                        if (next[i][k] != null) nuevoCamino.addAll(next[i][k]);
-                        if (next[k][j] != null) nuevoCamino.addAll(next[k][j]);
+        return new Resultado(csr, dist, siguiente);
+    }
 
-                        next[i][j] = nuevoCamino;
+    /**
+     * relajarBloque
+     * Objetivo: relajar el bloque (ib, jb) usando como intermedios las paradas del bloque kb.
+     * Retorno: ninguno.
+     */
+    private static void relajarBloque(double[] dist, int[] siguiente, int n, int ib, int jb, int kb) {
+        int i0 = ib * TAMANO_BLOQUE, i1 = Math.min(i0 + TAMANO_BLOQUE, n);
+        int j0 = jb * TAMANO_BLOQUE, j1 = Math.min(j0 + TAMANO_BLOQUE, n);
+        int k0 = kb * TAMANO_BLOQUE, k1 = Math.min(k0 + TAMANO_BLOQUE, n);
+        for (int k = k0; k < k1; k++) {
+            int filaK = k * n;
+            for (int i = i0; i < i1; i++) {
+                int filaI = i * n;
+                double dik = dist[filaI + k];
+                if (dik == Double.POSITIVE_INFINITY) continue;
+                int sigIK = siguiente[filaI + k];
+                for (int j = j0; j < j1; j++) {
+                    double nueva = dik + dist[filaK + j];
+                    if (nueva < dist[filaI + j]) {
+                        dist[filaI + j] = nueva;
+                        siguiente[filaI + j] = sigIK;
                     }
                 }
             }
         }
+    }
+
+    /**
+     * inicializar
+     * Objetivo: cargar las matrices: 0 en la diagonal,
+     *           el peso de la ruta directa más barata donde exista, e infinito en el resto.
+     * Retorno: ninguno.
+     */
+    private static void inicializar(GrafoCSR csr, String filtro, double[] dist, int[] siguiente) {
+        int n = csr.getNumParadas();
+
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(siguiente, -1);
+        for (int i = 0; i < n; i++) {
+            dist[i * n + i] = 0;
+        }
 
-        // Convertir a mapa
-        Map<Parada, Map<Parada, List<Ruta>>> resultado = new HashMap<>();
+        // Cargar rutas del grafo con sus pesos base
+        int[] offset = csr.getOffset();
+        int[] destino = csr.getDestino();
+        double[] pesos = csr.pesos(filtro);
         for (int i = 0; i < n; i++) {
-            Parada pi = paradas.get(i);
-            resultado.put(pi, new HashMap<>());
-            for (int j = 0; j < n; j++) {
-                Parada pj = paradas.get(j);
-                if (next[i][j] != null && !next[i][j].isEmpty()) {
-                    resultado.get(pi).put(pj, next[i][j]);
+            for (int e = offset[i]; e < offset[i + 1]; e++) {
+                int j = destino[e];
+                if (pesos[e] < dist[i * n + j]) {
+                    dist[i * n + j] = pesos[e];
+                    siguiente[i * n + j] = e;
                 }
             }
         }
+    }
+
+    /**
+     * Clase Resultado
+     * Objetivo: guardar las matrices de Floyd-Warshall y reconstruir caminos bajo demanda.
+     */
+    public static class Resultado {
+        private final GrafoCSR csr;
+        private final int n;
+        private final double[] dist;
+        private final int[] siguiente;
+
+        Resultado(GrafoCSR csr, double[] dist, int[] siguiente) {
+            this.csr = csr;
+            this.n = csr.getNumParadas();
+            this.dist = dist;
+            this.siguiente = siguiente;
+        }
+
+        public GrafoCSR getCSR() { return csr; }
+
+        double[] getDist() { return dist; }
+
+        int[] getSiguiente() { return siguiente; }
+
+        /**
+         * distancia
+         * Objetivo: peso mínimo de i a j (infinito si no hay camino).
+         * Retorno: double.
+         */
+        public double distancia(int i, int j) {
+            return dist[i * n + j];
+        }
+
+        /**
+         * camino
+         * Objetivo: armar la lista de rutas de i a j siguiendo el next-hop en cada paso.
+         * Retorno: List<Ruta> (vacía si no hay camino o si i == j).
+         */
+        public List<Ruta> camino(int i, int j) {
+            List<Ruta> rutas = new ArrayList<>();
+            if (siguiente[i * n + j] < 0) return rutas;
+            int[] destino = csr.getDestino();
+            int actual = i;
+            while (actual != j && rutas.size() <= n) {
+                int e = siguiente[actual * n + j];
+                if (e < 0) return new ArrayList<>(); // No debería pasar, pero evitamos un camino roto
+                rutas.add(csr.getRuta(e));
+                actual = destino[e];
+            }
+            return rutas;
+        }
+
+        /**
+         * comoMapa
+         * Objetivo: ofrecer el formato de siempre (parada -> parada -> rutas) pero como vista perezosa:
+         *           cada lista se arma recién cuando se consulta ese par.
+         * Retorno: Map<Parada, Map<Parada, List<Ruta>>>.
+         */
+        public Map<Parada, Map<Parada, List<Ruta>>> comoMapa() {
+            return new AbstractMap<>() {
+                @Override public Map<Parada, List<Ruta>> get(Object key) {
+                    int i = key instanceof Parada p ? csr.indiceDe(p) : -1;
+                    return i < 0 ? null : fila(i);
+                }
+
+                @Override public boolean containsKey(Object key) {
+                    return key instanceof Parada p && csr.indiceDe(p) >= 0;
+                }
+
+                @Override public Set<Entry<Parada, Map<Parada, List<Ruta>>>> entrySet() {
+                    Set<Entry<Parada, Map<Parada, List<Ruta>>>> filas = new LinkedHashSet<>();
+                    for (int i = 0; i < n; i++) {
+                        filas.add(new SimpleImmutableEntry<>(csr.getParada(i), fila(i)));
+                    }
+                    return filas;
+                }
+            };
+        }
 
-        return resultado;
+        private Map<Parada, List<Ruta>> fila(int i) {
+            return new AbstractMap<>() {
+                @Override public List<Ruta> get(Object key) {
+                    int j = key instanceof Parada p ? csr.indiceDe(p) : -1;
+                    if (j < 0 || siguiente[i * n + j] < 0) return null;
+                    return camino(i, j);
+                }
+
+                @Override public boolean containsKey(Object key) {
+                    int j = key instanceof Parada p ? csr.indiceDe(p) : -1;
+                    return j >= 0 && siguiente[i * n + j] >= 0;
+                }
+
+                @Override public Set<Entry<Parada, List<Ruta>>> entrySet() {
+                    Set<Entry<Parada, List<Ruta>>> columnas = new LinkedHashSet<>();
+                    for (int j = 0; j < n; j++) {
+                        if (siguiente[i * n + j] >= 0) {
+                            columnas.add(new SimpleImmutableEntry<>(csr.getParada(j), camino(i, j)));
+                        }
+                    }
+                    return columnas;
+                }
+            };
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,343 @@
+package models;
+
+import java.util.*;
+
+/**
+ * Nombre de la clase: FrentePareto
+ *
+ * Objetivo:
+ * - En vez de elegir un solo filtro (distancia, tiempo o costo), devolver en una sola búsqueda todos los caminos
+ *   "no dominados": ninguno es peor en los tres criterios que otro. Es el abanico de compromisos
+ *   (más rápido pero más caro, más barato pero más largo, etc.).
+ * - Búsqueda multi-etiqueta: cada parada guarda una bolsa de etiquetas (distancia, tiempo, costo) no dominadas.
+ *   Una etiqueta nueva se descarta si alguna de la bolsa es igual o mejor en todo; si no, saca las que ella domina.
+ *
+ * Nota:
+ * - Las etiquetas viven en arreglos primitivos (una posición por etiqueta) y la cola es un heap de enteros.
+ *   Se ordena como un A*: por la suma de los tres criterios más sus cotas hacia el destino (desempate por
+ *   distancia, tiempo, costo). Como las cotas son consistentes, una etiqueta que domina a otra en la misma parada
+ *   nunca sale después que ella, así que lo que sale de la cola ya no se vuelve a tocar, y se llega antes al destino.
+ * - Poda por destino: si la etiqueta más la cota inferior de lo que falta (Landmarks de cada criterio)
+ *   ya está dominada por un camino encontrado al destino, no se sigue. Antes de empezar se siembra el destino
+ *   con el mejor camino de cada criterio por separado, así la poda corta desde el principio.
+ * - Tiene un presupuesto de tiempo y de etiquetas: si se acaba, devuelve lo encontrado hasta ahí
+ *   con completo = false (son caminos reales, pero puede faltar alguno del frente).
+ */
+public class FrentePareto {
+
+    public static final long PRESUPUESTO_MS_POR_DEFECTO = 250;
+    public static final int MAX_ETIQUETAS_POR_DEFECTO = 2_000_000;
+
+    private static final int D = 0, T = 1, C = 2; // criterios
+
+    /**
+     * Clase Resultado
+     * Propósito: caminos del frente (ordenados por distancia) y si la búsqueda terminó dentro del presupuesto.
+     */
+    public static class Resultado {
+        public final List<RutaMasCorta> caminos;
+        public final boolean completo;
+        public final int etiquetas;     // etiquetas creadas (para medir el esfuerzo)
+        public final long milisegundos;
+
+        Resultado(List<RutaMasCorta> caminos, boolean completo, int etiquetas, long milisegundos) {
+            this.caminos = caminos;
+            this.completo = completo;
+            this.etiquetas = etiquetas;
+            this.milisegundos = milisegundos;
+        }
+
+        @Override
+        public String toString() {
+            return "FrentePareto[caminos=" + caminos.size() + ", completo=" + completo
+                    + ", etiquetas=" + etiquetas + ", ms=" + milisegundos + "]";
+        }
+    }
+
+    private final Escenario escenario;
+    private final GrafoCSR csr;
+    private final double[][] pesos;       // [criterio][ruta]
+    private final BitSet cerradas;
+    private final Landmarks[] cotas;      // por criterio; null = sin cota
+    private final long presupuestoMs;
+    private final int maxEtiquetas;
+
+    // Etiquetas: valores por criterio, parada, etiqueta anterior y ruta usada
+    private double[][] valor;
+    private int[] paradaEtiqueta;
+    private int[] etiquetaPrev;
+    private int[] rutaEtiqueta;
+    private double[] clave;          // orden en la cola: suma de (valor + cota hacia el destino) de los tres criterios
+    private int etiquetas;
+    private final BitSet muertas = new BitSet(); // dominadas después de crearse
+
+    // Bolsa de etiquetas vivas de cada parada
+    private final int[][] bolsa;
+    private final int[] tamBolsa;
+
+    // Cola: heap binario de índices de etiqueta
+    private int[] heap = new int[64];
+    private int tamHeap;
+
+    // Cota hacia el destino por parada y criterio (NaN = no calculada)
+    private final double[][] cota;
+
+    /**
+     * FrentePareto
+     * Objetivo: preparar la búsqueda con los pesos y cierres del escenario.
+     *           Los landmarks (uno por criterio, en orden distancia, tiempo, costo) pueden ser null;
+     *           los que no son de la versión del escenario se ignoran.
+     * Retorno: ninguno.
+     */
+    FrentePareto(Escenario escenario, Landmarks[] landmarks, long presupuestoMs, int maxEtiquetas) {
+        if (escenario == null) throw new IllegalArgumentException("escenario no puede ser null");
+        if (presupuestoMs <= 0 || maxEtiquetas <= 0) throw new IllegalArgumentException("El presupuesto debe ser positivo");
+        this.escenario = escenario;
+        this.csr = escenario.getCSR();
+        this.pesos = new double[][]{escenario.pesos("distancia"), escenario.pesos("tiempo"), escenario.pesos("costo")};
+        this.cerradas = escenario.cerradas();
+        this.cotas = new Landmarks[3];
+        for (int k = 0; k < 3 && landmarks != null && k < landmarks.length; k++) {
+            if (landmarks[k] != null && landmarks[k].getVersion() == escenario.getVersion()) cotas[k] = landmarks[k];
+        }
+        this.presupuestoMs = presupuestoMs;
+        this.maxEtiquetas = maxEtiquetas;
+
+        int n = csr.getNumParadas();
+        this.bolsa = new int[n][];
+        this.tamBolsa = new int[n];
+        this.cota = new double[3][n];
+        for (double[] c : cota) Arrays.fill(c, Double.NaN);
+        this.valor = new double[3][256];
+        this.paradaEtiqueta = new int[256];
+        this.etiquetaPrev = new int[256];
+        this.rutaEtiqueta = new int[256];
+        this.clave = new double[256];
+    }
+
+    /**
+     * calcular
+     * Objetivo: frente de Pareto de inicio a destino sobre (distancia, tiempo, costo).
+     *           Cada camino se resume con el escenario por tiempo (totalPeso = tiempo).
+     * Retorno: Resultado (lista vacía si no hay camino o si inicio == destino).
+     */
+    public Resultado calcular(Parada inicio, Parada destino) {
+        if (inicio == null || destino == null) throw new IllegalArgumentException("inicio/destino no pueden ser null");
+        long t0 = System.nanoTime();
+        int s = csr.indiceDe(inicio);
+        int t = csr.indiceDe(destino);
+        if (s < 0 || t < 0 || s == t) return new Resultado(new ArrayList<>(), true, 0, 0);
+
+        boolean completo = buscar(s, t, t0 + presupuestoMs * 1_000_000L);
+
+        List<RutaMasCorta> caminos = new ArrayList<>();
+        Integer[] frente = new Integer[tamBolsa[t]];
+        for (int i = 0; i < frente.length; i++) frente[i] = bolsa[t][i];
+        Arrays.sort(frente, this::comparar);
+        for (int x : frente) {
+            caminos.add(escenario.resumen(camino(x), "tiempo"));
+        }
+        return new Resultado(caminos, completo, etiquetas, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    /**
+     * buscar
+     * Objetivo: búsqueda multi-etiqueta dirigida al destino con poda por dominancia y por destino.
+     * Retorno: boolean, true si terminó dentro del presupuesto.
+     */
+    private boolean buscar(int s, int t, long limiteNanos) {
+        int[] offset = csr.getOffset();
+        int[] destinos = csr.getDestino();
+
+        int raiz = nuevaEtiqueta(s, -1, -1, 0, 0, 0);
+        clave[raiz] = cotaHacia(D, s, t) + cotaHacia(T, s, t) + cotaHacia(C, s, t);
+        agregarABolsa(s, raiz);
+        empujar(raiz);
+        sembrarDestino(raiz, s, t);
+
+        int iteraciones = 0;
+        while (tamHeap > 0) {
+            // Revisamos el reloj cada tanto para no pagar System.nanoTime en cada etiqueta
+            if ((++iteraciones & 1023) == 0 && System.nanoTime() > limiteNanos) return false;
+            if (etiquetas >= maxEtiquetas) return false;
+
+            int x = sacar();
+            if (muertas.get(x)) continue;
+            int u = paradaEtiqueta[x];
+            if (u == t) continue; // Llegamos: ya está en el frente, no hace falta seguir desde el destino
+
+            double du = valor[D][x], tu = valor[T][x], cu = valor[C][x];
+            for (int e = offset[u]; e < offset[u + 1]; e++) {
+                if (cerradas.get(e)) continue;
+                int v = destinos[e];
+                double nd = du + pesos[D][e], nt = tu + pesos[T][e], nc = cu + pesos[C][e];
+
+                // Poda por dominancia en la bolsa de v (suele ser chica, así que va primero)
+                if (dominada(v, nd, nt, nc)) continue;
+
+                // Poda por destino: aun con lo mínimo que falta, ¿algún camino ya encontrado es igual o mejor?
+                double cd = cotaHacia(D, v, t), ct = cotaHacia(T, v, t), cc = cotaHacia(C, v, t);
+                if (cd == Double.POSITIVE_INFINITY || ct == Double.POSITIVE_INFINITY || cc == Double.POSITIVE_INFINITY) continue;
+                if (v != t && dominada(t, nd + cd, nt + ct, nc + cc)) continue;
+
+                sacarDominadas(v, nd, nt, nc);
+
+                int y = nuevaEtiqueta(v, x, e, nd, nt, nc);
+                clave[y] = nd + cd + nt + ct + nc + cc;
+                agregarABolsa(v, y);
+                empujar(y);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * sembrarDestino
+     * Objetivo: poner en la bolsa del destino el mejor camino de cada criterio por separado (A* con landmarks).
+     *           Son caminos reales del frente (o casi: si otro empata y es mejor en lo demás, lo saca después),
+     *           así la poda por destino funciona desde la primera etiqueta y, si se acaba el presupuesto,
+     *           al menos están los tres extremos.
+     * Retorno: ninguno.
+     */
+    private void sembrarDestino(int raiz, int s, int t) {
+        for (int k = 0; k < 3; k++) {
+            List<Ruta> rutas = cotas[k] != null
+                    ? new AEstrellaLandmarks().buscar(csr, pesos[k], cerradas, cotas[k], s, t)
+                    : Dijkstra.buscar(csr, pesos[k], cerradas, s, t);
+            if (rutas == null || rutas.isEmpty()) return; // Si no hay camino para uno, no hay para ninguno
+
+            int x = raiz;
+            for (Ruta r : rutas) {
+                int e = escenario.indiceDe(r);
+                x = nuevaEtiqueta(csr.getDestino()[e], x, e,
+                        valor[D][x] + pesos[D][e], valor[T][x] + pesos[T][e], valor[C][x] + pesos[C][e]);
+            }
+            if (dominada(t, valor[D][x], valor[T][x], valor[C][x])) continue;
+            sacarDominadas(t, valor[D][x], valor[T][x], valor[C][x]);
+            agregarABolsa(t, x);
+        }
+    }
+
+    private double cotaHacia(int criterio, int v, int t) {
+        Landmarks l = cotas[criterio];
+        if (l == null) return 0;
+        double c = cota[criterio][v];
+        if (Double.isNaN(c)) cota[criterio][v] = c = l.cotaInferior(v, t);
+        return c;
+    }
+
+    /**
+     * dominada
+     * Objetivo: saber si alguna etiqueta viva de la parada v es igual o mejor en los tres criterios.
+     * Retorno: boolean.
+     */
+    private boolean dominada(int v, double d, double ti, double c) {
+        int[] b = bolsa[v];
+        for (int i = 0; i < tamBolsa[v]; i++) {
+            int y = b[i];
+            if (valor[D][y] <= d && valor[T][y] <= ti && valor[C][y] <= c) return true;
+        }
+        return false;
+    }
+
+    /**
+     * sacarDominadas
+     * Objetivo: quitar de la bolsa de v las etiquetas que la nueva (d, ti, c) domina y marcarlas muertas
+     *           (si todavía están en la cola se saltan al salir).
+     * Retorno: ninguno.
+     */
+    private void sacarDominadas(int v, double d, double ti, double c) {
+        int[] b = bolsa[v];
+        int j = 0;
+        for (int i = 0; i < tamBolsa[v]; i++) {
+            int y = b[i];
+            if (d <= valor[D][y] && ti <= valor[T][y] && c <= valor[C][y]) {
+                muertas.set(y);
+            } else {
+                b[j++] = y;
+            }
+        }
+        tamBolsa[v] = j;
+    }
+
+    private void agregarABolsa(int v, int x) {
+        int[] b = bolsa[v];
+        if (b == null) bolsa[v] = b = new int[4];
+        else if (tamBolsa[v] == b.length) bolsa[v] = b = Arrays.copyOf(b, b.length * 2);
+        b[tamBolsa[v]++] = x;
+    }
+
+    private int nuevaEtiqueta(int parada, int prev, int ruta, double d, double ti, double c) {
+        if (etiquetas == paradaEtiqueta.length) {
+            int nuevo = etiquetas * 2;
+            for (int k = 0; k < 3; k++) valor[k] = Arrays.copyOf(valor[k], nuevo);
+            paradaEtiqueta = Arrays.copyOf(paradaEtiqueta, nuevo);
+            etiquetaPrev = Arrays.copyOf(etiquetaPrev, nuevo);
+            rutaEtiqueta = Arrays.copyOf(rutaEtiqueta, nuevo);
+            clave = Arrays.copyOf(clave, nuevo);
+        }
+        int x = etiquetas++;
+        valor[D][x] = d;
+        valor[T][x] = ti;
+        valor[C][x] = c;
+        paradaEtiqueta[x] = parada;
+        etiquetaPrev[x] = prev;
+        rutaEtiqueta[x] = ruta;
+        return x;
+    }
+
+    /**
+     * camino
+     * Objetivo: rearmar las rutas de una etiqueta siguiendo las etiquetas anteriores.
+     * Retorno: List<Ruta>.
+     */
+    private List<Ruta> camino(int x) {
+        LinkedList<Ruta> rutas = new LinkedList<>();
+        for (int y = x; etiquetaPrev[y] >= 0; y = etiquetaPrev[y]) {
+            rutas.addFirst(csr.getRuta(rutaEtiqueta[y]));
+        }
+        return rutas;
+    }
+
+    // ---- Heap de etiquetas ordenado por clave y después por (distancia, tiempo, costo) ----
+
+    private int compararClave(int a, int b) {
+        int r = Double.compare(clave[a], clave[b]);
+        return r != 0 ? r : comparar(a, b);
+    }
+
+    private int comparar(int a, int b) {
+        int r = Double.compare(valor[D][a], valor[D][b]);
+        if (r != 0) return r;
+        r = Double.compare(valor[T][a], valor[T][b]);
+        return r != 0 ? r : Double.compare(valor[C][a], valor[C][b]);
+    }
+
+    private void empujar(int x) {
+        if (tamHeap == heap.length) heap = Arrays.copyOf(heap, tamHeap * 2);
+        int i = tamHeap++;
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (compararClave(heap[padre], x) <= 0) break;
+            heap[i] = heap[padre];
+            i = padre;
+        }
+        heap[i] = x;
+    }
+
+    private int sacar() {
+        int min = heap[0];
+        int ultimo = heap[--tamHeap];
+        int i = 0;
+        while (true) {
+            int hijo = 2 * i + 1;
+            if (hijo >= tamHeap) break;
+            if (hijo + 1 < tamHeap && compararClave(heap[hijo + 1], heap[hijo]) < 0) hijo++;
+            if (compararClave(ultimo, heap[hijo]) <= 0) break;
+            heap[i] = heap[hijo];
+            i = hijo;
+        }
+        if (tamHeap > 0) heap[i] = ultimo;
+        return min;
+    }
+}
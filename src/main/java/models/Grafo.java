@@ -1,17 +1,51 @@
 package models;
 
-import DataBase.ParadaDAO;
-import DataBase.RutaDAO;
+import DataBase.CargaRed;
+import DataBase.EscrituraDiferida;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Supplier;
 
 public class Grafo {
 
     private Map<Parada, List<Ruta>> mapa;
     private ObservableList<Parada> paradas;
 
+    // Versión del grafo: sube con cada cambio de paradas o rutas.
+    // Las vistas y resultados precalculados se comparan contra ella para saber si siguen válidos.
+    private long version;
+    private GrafoCSR csr;
+
+    // Rutas cerradas: contador O(1) y máscara por índice de ruta en la CSR actual.
+    // Se actualizan solos cuando una ruta del grafo cambia de estado (Ruta.setEstado).
+    private int rutasCerradas;
+    private final BitSet cerradas = new BitSet();
+    private final Map<String, Landmarks> landmarks = new HashMap<>(); // por filtro
+    private final Map<String, ContraccionJerarquica> jerarquias = new HashMap<>(); // por filtro
+    private MinTransbordos minTransbordos; // grafo de estados (parada, línea) para el filtro "transbordos"
+
+    // Árboles de caminos mínimos de los orígenes usados hace poco (por filtro, versión y escenario)
+    private final CacheArboles arboles = new CacheArboles(CacheArboles.CAPACIDAD_POR_DEFECTO);
+
+    // Resultados de consultas ya respondidas (ver CacheRutas) y cambios de línea con los que se guardaron
+    private CacheRutas cacheRutas = new CacheRutas(CacheRutas.LIMITE_BYTES_POR_DEFECTO);
+    private long cambiosLineas = Lineas.getCambios();
+
+    // Probabilidades de eventos para las simulaciones y generador de semillas cuando no nos dan una
+    private TablaEventos tablaEventos = TablaEventos.POR_DEFECTO;
+    private final SplittableRandom semillas = new SplittableRandom();
+
+    // Resultado de Floyd-Warshall (todos los pares) por filtro y la versión con la que se calculó
+    private final Map<String, FloydWarshall.Resultado> todosLosPares = new HashMap<>();
+    private long versionTodosLosPares = -1;
+
+    // Horizonte de transacciones de PostgreSQL con el que se leyó la red (-1 = no se leyó de la base; ver Instantanea)
+    private long marcaRed = -1;
+
     private static final Grafo INSTANCE = new Grafo();
 
     /**
@@ -53,6 +87,153 @@ public class Grafo {
         return mapa;
     }
 
+    /**
+     * getVersion
+     * Objetivo: exponer la versión actual del grafo para validar cachés e índices.
+     * Retorno: long.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * marcarCambio
+     * Objetivo: subir la versión del grafo cada vez que se modifica su estructura o sus pesos base.
+     * Retorno: ninguno.
+     */
+    private void marcarCambio() {
+        version++;
+        arboles.limpiar(); // Los árboles de la versión anterior ya no pueden volver a servir
+    }
+
+    /**
+     * getCSR
+     * Objetivo: devolver la vista compacta (CSR) del grafo. Solo se reconstruye
+     *           si el grafo cambió desde la última vez que se pidió.
+     * Retorno: GrafoCSR.
+     */
+    public synchronized GrafoCSR getCSR() {
+        if (csr == null || csr.getVersion() != version) {
+            csr = new GrafoCSR(mapa, version);
+            cerradas.clear();
+            for (int e = 0; e < csr.getNumRutas(); e++) {
+                if (!csr.abierta(e)) cerradas.set(e);
+            }
+        }
+        return csr;
+    }
+
+    /**
+     * hayRutasCerradas
+     * Objetivo: saber al toque si hay alguna ruta cerrada, sin recorrer todas las rutas.
+     * Retorno: boolean.
+     */
+    public boolean hayRutasCerradas() {
+        return rutasCerradas > 0;
+    }
+
+    /**
+     * getRutasCerradas
+     * Objetivo: entregar la máscara de rutas cerradas indexada igual que la vista CSR actual.
+     *           Devolvemos una copia para que una consulta no vea cambios a mitad de camino.
+     * Retorno: BitSet (bit e encendido = ruta e cerrada).
+     */
+    public synchronized BitSet getRutasCerradas() {
+        getCSR();
+        return (BitSet) cerradas.clone();
+    }
+
+    /**
+     * cambioEstadoRuta
+     * Objetivo: lo llama Ruta.setEstado cuando una ruta del grafo se abre o se cierra,
+     *           para mantener el contador y la máscara sin recorrer el grafo.
+     * Retorno: ninguno.
+     */
+    synchronized void cambioEstadoRuta(Ruta ruta, boolean abierta) {
+        rutasCerradas += abierta ? -1 : 1;
+        int e = ruta.getIndice();
+        if (csr != null && csr.getVersion() == version && e >= 0 && e < csr.getNumRutas() && csr.getRuta(e) == ruta) {
+            cerradas.set(e, !abierta);
+        }
+    }
+
+    /**
+     * registrarRuta / olvidarRuta
+     * Objetivo: enganchar (o soltar) la ruta al grafo para que avise sus cambios de estado,
+     *           y contarla si ya viene cerrada.
+     * Retorno: ninguno.
+     */
+    private void registrarRuta(Ruta ruta) {
+        ruta.setGrafo(this);
+        if (!ruta.isEstado()) rutasCerradas++;
+    }
+
+    private void olvidarRuta(Ruta ruta) {
+        if (!ruta.isEstado()) rutasCerradas--;
+        ruta.setGrafo(null);
+    }
+
+    /**
+     * getLandmarks
+     * Objetivo: devolver las distancias a/desde landmarks para el filtro pedido (heurística de A*).
+     *           Se precalculan una sola vez por versión del grafo; si el grafo cambió, se rehacen.
+     * Retorno: Landmarks.
+     */
+    public synchronized Landmarks getLandmarks(String filtro) {
+        String clave = filtro.toLowerCase(Locale.ROOT);
+        Landmarks l = landmarks.get(clave);
+        if (l == null || l.getVersion() != version) {
+            l = new Landmarks(getCSR(), clave, Landmarks.CANTIDAD_POR_DEFECTO);
+            landmarks.put(clave, l);
+        }
+        return l;
+    }
+
+    /**
+     * getMinTransbordos
+     * Objetivo: devolver el grafo de estados (parada, línea) del filtro "transbordos".
+     *           Se arma una vez por versión; también se rehace si alguna parada cambió de tipo.
+     * Retorno: MinTransbordos.
+     */
+    public synchronized MinTransbordos getMinTransbordos() {
+        if (minTransbordos == null || !minTransbordos.esVigente(version)) {
+            minTransbordos = new MinTransbordos(getCSR());
+        }
+        return minTransbordos;
+    }
+
+    /**
+     * getJerarquia
+     * Objetivo: devolver la Contraction Hierarchy de la red base para el filtro pedido.
+     *           Igual que los landmarks, se arma una vez por versión del grafo.
+     * Retorno: ContraccionJerarquica.
+     */
+    public synchronized ContraccionJerarquica getJerarquia(String filtro) {
+        String clave = filtro.toLowerCase(Locale.ROOT);
+        ContraccionJerarquica ch = jerarquias.get(clave);
+        if (ch == null || ch.getVersion() != version) {
+            ch = new ContraccionJerarquica(getCSR(), clave);
+            jerarquias.put(clave, ch);
+        }
+        return ch;
+    }
+
+    /**
+     * getTodosLosPares
+     * Objetivo: devolver los caminos mínimos entre todos los pares (Floyd-Warshall) para el filtro.
+     *           Es O(n³), así que lo guardamos por filtro y solo lo recalculamos cuando cambia
+     *           la versión del grafo (agregar/eliminar/modificar rutas o paradas).
+     *           Si la red no cabe en FloydWarshall.LIMITE_BYTES lanza IllegalStateException.
+     * Retorno: FloydWarshall.Resultado (matrices de distancia y next-hop).
+     */
+    public synchronized FloydWarshall.Resultado getTodosLosPares(String filtro) {
+        if (versionTodosLosPares != version) {
+            todosLosPares.clear();
+            versionTodosLosPares = version;
+        }
+        return todosLosPares.computeIfAbsent(filtro.toLowerCase(Locale.ROOT), f -> FloydWarshall.calcularMatriz(this, f));
+    }
+
     /**
      * agregarParada
      * Objetivo: añadir una parada al grafo si no existe todavía y registrarla en la lista observable.
@@ -64,6 +245,7 @@ public class Grafo {
         if (!mapa.containsKey(parada)) {
             mapa.put(parada, new ArrayList<>());
             paradas.add(parada);
+            marcarCambio();
         }
     }
 
@@ -79,8 +261,10 @@ public class Grafo {
         mapa.putIfAbsent(destino, new ArrayList<>());
 
         Ruta nuevaRuta = new Ruta(nombre, inicio, destino, distancia, tiempo, costo);
+        registrarRuta(nuevaRuta);
         mapa.get(inicio).add(nuevaRuta);
         destino.agregarRutaDeEntrada(nuevaRuta);
+        marcarCambio();
 
         return nuevaRuta;
     }
@@ -89,25 +273,32 @@ public class Grafo {
      * eliminarParada
      * Objetivo: borrar una parada del grafo limpiando primero todas las rutas
      *           que entran y salen de ella para no dejar referencias colgando.
-     *           Luego quitamos de la lista observable y avisamos a la DB.
+     *           Luego quitamos de la lista observable y anotamos el borrado para la DB
+     *           (las rutas también, así se anula lo que de ellas todavía no se haya guardado).
      * Retorno: ninguno.
      */
     public void eliminarParada(Parada parada) {
         if (parada == null) throw new IllegalArgumentException("Parada no puede ser null");
+        EscrituraDiferida escritura = EscrituraDiferida.getInstance();
 
         for (int i = parada.getRutasDeEntrada().size() - 1; i >= 0; i--) {
-            eliminarRuta(parada.getRutasDeEntrada().get(i));
+            Ruta ruta = parada.getRutasDeEntrada().get(i);
+            eliminarRuta(ruta);
+            escritura.eliminarRuta(ruta);
         }
 
         if (mapa.get(parada) != null) {
             for (int j = mapa.get(parada).size() - 1; j >= 0; j--) {
-                eliminarRuta(mapa.get(parada).get(j));
+                Ruta ruta = mapa.get(parada).get(j);
+                eliminarRuta(ruta);
+                escritura.eliminarRuta(ruta);
             }
         }
 
         mapa.remove(parada);
         paradas.remove(parada);
-        ParadaDAO.getInstance().eliminarParada(parada.getId());
+        marcarCambio();
+        escritura.eliminarParada(parada);
     }
 
     /**
@@ -118,8 +309,9 @@ public class Grafo {
      */
     public void eliminarRuta(Ruta ruta) {
         if (ruta == null) throw new IllegalArgumentException("Ruta no puede ser null");
-        mapa.get(ruta.getInicio()).remove(ruta);
+        if (mapa.get(ruta.getInicio()).remove(ruta)) olvidarRuta(ruta);
         ruta.getDestino().eliminarRutaDeEntrada(ruta);
+        marcarCambio();
     }
 
     /**
@@ -168,135 +360,310 @@ public class Grafo {
 
         ruta.setEvento("Normal");
         ruta.setEstado(true);
+        marcarCambio();
     }
 
     /**
      * obtenerMejorRuta
-     * Objetivo: decidir qué algoritmo usar según el filtro y el estado de las rutas,
-     *           simular eventos antes de calcular y devolver el resumen de la mejor ruta.
+     * Objetivo: decidir qué algoritmo usar según el filtro, simular un escenario de eventos
+     *           y devolver el resumen de la mejor ruta bajo ese escenario.
      * Retorno: RutaMasCorta con el camino y totales.
      */
     public RutaMasCorta obtenerMejorRuta(Parada inicio, Parada destino, String filtro) {
         if (inicio == null || destino == null || filtro == null || filtro.isBlank())
             throw new IllegalArgumentException("inicio/destino/filtro no pueden ser null");
 
-        // Simular eventos antes de calcular rutas
-        simularEventosRetorno();
+        // Simular eventos antes de calcular rutas (sin tocar las rutas del grafo).
+        // La semilla queda guardada en el resultado para poder repetir la consulta.
+        // Como el escenario es nuevo y se usa una sola vez, no vale la pena guardar el árbol del origen.
+        return calcularMejorRuta(inicio, destino, filtro, simularEscenario(), false);
+    }
+
+    /**
+     * obtenerMejorRuta (con escenario)
+     * Objetivo: igual que la anterior pero con un escenario dado, para comparar varios escenarios
+     *           sobre la misma red o repetir una consulta con los mismos eventos.
+     *           Para tiempo/costo se usa el árbol de caminos del origen (ver getArbol): si se piden varios
+     *           destinos desde el mismo origen y escenario, solo el primero corre la búsqueda.
+     *           Si la misma consulta ya se respondió con un escenario igual (misma semilla, tabla y cierres),
+     *           sale directo de la caché de resultados.
+     * Retorno: RutaMasCorta con el camino y totales.
+     */
+    public RutaMasCorta obtenerMejorRuta(Parada inicio, Parada destino, String filtro, Escenario escenario) {
+        if (inicio == null || destino == null || filtro == null || filtro.isBlank() || escenario == null)
+            throw new IllegalArgumentException("inicio/destino/filtro/escenario no pueden ser null");
+        if (escenario.getVersion() != version)
+            throw new IllegalArgumentException("El escenario no corresponde a la versión actual del grafo");
+        return consultarCache(inicio, destino, filtro, escenario,
+                () -> calcularMejorRuta(inicio, destino, filtro, escenario, true));
+    }
+
+    /**
+     * calcularMejorRuta
+     * Objetivo: elegir el motor según el filtro y resolver la consulta bajo el escenario.
+     *           usarArbol indica si conviene guardar el árbol del origen para los próximos destinos.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    private RutaMasCorta calcularMejorRuta(Parada inicio, Parada destino, String filtro, Escenario escenario,
+                                           boolean usarArbol) {
+        if (inicio == null || destino == null || filtro == null || filtro.isBlank() || escenario == null)
+            throw new IllegalArgumentException("inicio/destino/filtro/escenario no pueden ser null");
+        if (escenario.getVersion() != version)
+            throw new IllegalArgumentException("El escenario no corresponde a la versión actual del grafo");
 
         switch (filtro.toLowerCase()) {
             case "distancia" -> {
-                return rutaMasCortaFloyd(inicio, destino, "distancia");
+                // La distancia no cambia con los eventos: usamos la matriz de Floyd-Warshall precalculada
+                RutaMasCorta rm = rutaMasCortaFloyd(inicio, destino, "distancia");
+                if (rm != null) rm.setSemillaEscenario(escenario.getSemilla());
+                return rm;
             }
             case "tiempo", "costo" -> {
-                // Usar Dijkstra si todas las rutas son normales, Bellman-Ford si hay rutas cerradas
-                boolean hayRutasCerradas = getRutas().stream().anyMatch(r -> !r.isEstado());
-                if (!hayRutasCerradas) {
-                    return new Dijkstra().rutaMasCorta(this, inicio, destino, filtro);
-                } else {
-                    return new BellmanFord().calcular(this, inicio, destino, filtro);
+                // Todos los pesos son no negativos, así que no hace falta Bellman-Ford aunque haya rutas cerradas:
+                // Dijkstra (árbol completo del origen, o A* con landmarks si es una consulta suelta)
+                // salta las rutas cerradas del escenario y usa sus pesos con eventos.
+                if (usarArbol) {
+                    if (escenario.getCSR().indiceDe(inicio) < 0) return null;
+                    List<Ruta> camino = getArbol(inicio, filtro, escenario).camino(destino);
+                    return camino == null ? null : escenario.resumen(camino, filtro);
                 }
+                return new AEstrellaLandmarks().rutaMasCorta(this, inicio, destino, filtro, escenario);
             }
             case "transbordos" -> {
-                return new BellmanFord().calcular(this, inicio, destino, "transbordos");
+                return getMinTransbordos().rutaMasCorta(inicio, destino, escenario);
             }
             default -> throw new IllegalArgumentException("Filtro desconocido: " + filtro);
         }
     }
 
     /**
-     * simularEventosRetorno
-     * Objetivo: aplicar una simulación ligera de eventos a cada ruta (accidente, lluvia, retraso, etc.)
-     *           para que los algoritmos trabajen con valores dinámicos. Luego se resetean en las partes necesarias.
-     * Retorno: boolean indicando que la simulación corrió.
+     * obtenerMejorRutaEstatica
+     * Objetivo: responder la mejor ruta sobre la red base (sin simular eventos ni cierres)
+     *           usando la Contraction Hierarchy. Es la consulta rápida para distancia/tiempo/costo base.
+     *           Los resultados quedan en la caché de resultados hasta que cambie la versión del grafo.
+     * Retorno: RutaMasCorta con el camino y totales base, o null si no hay camino.
+     */
+    public RutaMasCorta obtenerMejorRutaEstatica(Parada inicio, Parada destino, String filtro) {
+        if (inicio == null || destino == null || filtro == null || filtro.isBlank())
+            throw new IllegalArgumentException("inicio/destino/filtro no pueden ser null");
+        return consultarCache(inicio, destino, filtro, null,
+                () -> getJerarquia(filtro).rutaMasCorta(inicio, destino));
+    }
+
+    /**
+     * consultarCache
+     * Objetivo: responder desde la caché de resultados si la consulta ya se hizo con la misma versión
+     *           del grafo y el mismo escenario (null = red base); si no, calcularla y guardarla.
+     *           Las paradas se identifican por su índice en la vista CSR de la versión actual.
+     * Retorno: RutaMasCorta (compartido, no modificar) o null si no hay camino.
+     */
+    private RutaMasCorta consultarCache(Parada inicio, Parada destino, String filtro, Escenario escenario,
+                                        Supplier<RutaMasCorta> calcular) {
+        GrafoCSR vista = escenario != null ? escenario.getCSR() : getCSR();
+        int s = vista.indiceDe(inicio);
+        int t = vista.indiceDe(destino);
+        if (s < 0 || t < 0) return calcular.get();
+
+        CacheRutas cache = getCacheRutas();
+        CacheRutas.Clave clave = new CacheRutas.Clave(s, t, filtro.toLowerCase(Locale.ROOT), vista.getVersion(), escenario);
+        RutaMasCorta rm = cache.obtener(clave);
+        if (rm == null) {
+            rm = calcular.get();
+            cache.guardar(clave, rm);
+        }
+        return rm;
+    }
+
+    /**
+     * getCacheRutas
+     * Objetivo: devolver la caché de resultados. Si alguna parada cambió de tipo desde la última vez,
+     *           se vacía: los transbordos guardados se contaron con las líneas viejas.
+     * Retorno: CacheRutas.
      */
-    private boolean simularEventosRetorno() {
-        Random rand = new Random();
+    public synchronized CacheRutas getCacheRutas() {
+        long cambios = Lineas.getCambios();
+        if (cambios != cambiosLineas) {
+            cacheRutas.limpiar();
+            cambiosLineas = cambios;
+        }
+        return cacheRutas;
+    }
 
-        for (Parada p : mapa.keySet()) {
-            for (Ruta r : mapa.get(p)) {
+    /**
+     * configurarCacheRutas
+     * Objetivo: cambiar el límite de memoria de la caché de resultados (empieza vacía).
+     * Retorno: ninguno.
+     */
+    public synchronized void configurarCacheRutas(long limiteBytes) {
+        cacheRutas = new CacheRutas(limiteBytes);
+        cambiosLineas = Lineas.getCambios();
+    }
 
-                r.resetValores(); // solo al inicio de la simulación
+    /**
+     * getArbol
+     * Objetivo: devolver el árbol de caminos mínimos desde el origen para el filtro y el escenario,
+     *           armándolo solo si no está en la caché. Cuando el grafo cambia la caché se vacía.
+     * Retorno: ArbolCaminos.
+     */
+    public ArbolCaminos getArbol(Parada origen, String filtro, Escenario escenario) {
+        if (origen == null || filtro == null || filtro.isBlank() || escenario == null)
+            throw new IllegalArgumentException("origen/filtro/escenario no pueden ser null");
+        int s = escenario.getCSR().indiceDe(origen);
+        if (s < 0) throw new IllegalArgumentException("La parada de origen no está en el grafo");
+        String clave = filtro.toLowerCase(Locale.ROOT);
+        return arboles.obtener(s, clave, escenario, () -> new ArbolCaminos(escenario, s, clave));
+    }
 
-                int prob = rand.nextInt(100) + 1;
+    public CacheArboles getCacheArboles() {
+        return arboles;
+    }
 
-                if (prob <= 5) { // ACCIDENTE GRAVE – RUTA CERRADA
-                    r.setEstado(false);
-                    r.setEvento("Accidente grave (Ruta cerrada)");
-                }
-                else if (prob <= 15) { // ACCIDENTE LEVE
-                    r.setEstado(true);
-                    r.setEvento("Accidente leve (Retraso severo)");
-                    r.setTiempo(r.getTiempoBase() * 2.0);
-                    r.setCosto(r.getCostoBase() * 1.3);
-                }
-                else if (prob <= 30) { // RETRASO
-                    r.setEstado(true);
-                    r.setEvento("Retraso");
-                    r.setTiempo(r.getTiempoBase() * 1.5);
-                    r.setCosto(r.getCostoBase() * 1.2);
-                }
-                else if (prob <= 40) { // LLUVIA
-                    r.setEstado(true);
-                    r.setEvento("Lluvia");
-                    r.setTiempo(r.getTiempoBase() * 1.2);
-                    r.setCosto(r.getCostoBase() * 1.1);
-                }
-                else { // NORMAL
-                    r.setEstado(true);
-                    r.setEvento("Normal");
-                    r.setTiempo(r.getTiempoBase());
-                    r.setCosto(r.getCostoBase());
-                }
-            }
-        }
-        return true;
+    /**
+     * obtenerAlternativas
+     * Objetivo: hasta k caminos distintos (sin ciclos) de inicio a destino, del mejor al peor,
+     *           bajo un escenario de eventos recién simulado (como obtenerMejorRuta).
+     * Retorno: List<RutaMasCorta> (vacía si no hay camino).
+     */
+    public List<RutaMasCorta> obtenerAlternativas(Parada inicio, Parada destino, String filtro, int k) {
+        return obtenerAlternativas(inicio, destino, filtro, k, simularEscenario());
     }
 
     /**
-     * rutaMasCortaFloyd
-     * Objetivo: usar Floyd-Warshall para construir el camino óptimo según el filtro,
-     *           recalcular totales y devolver el resumen en RutaMasCorta.
-     *           También contamos transbordos con la misma lógica que el resto de la app.
-     * Retorno: RutaMasCorta o null si no hay camino.
+     * obtenerAlternativas (con escenario)
+     * Objetivo: igual que la anterior con un escenario dado; la primera alternativa es la mejor ruta de ese escenario.
+     *           Solo para distancia, tiempo o costo (ver KCaminosYen).
+     * Retorno: List<RutaMasCorta> (vacía si no hay camino).
      */
-    private RutaMasCorta rutaMasCortaFloyd(Parada inicio, Parada destino, String filtro) {
-        Map<Parada, Map<Parada, List<Ruta>>> rutas = FloydWarshall.calcular(this, filtro);
+    public List<RutaMasCorta> obtenerAlternativas(Parada inicio, Parada destino, String filtro, int k, Escenario escenario) {
+        if (inicio == null || destino == null || filtro == null || filtro.isBlank() || escenario == null)
+            throw new IllegalArgumentException("inicio/destino/filtro/escenario no pueden ser null");
+        if (escenario.getVersion() != version)
+            throw new IllegalArgumentException("El escenario no corresponde a la versión actual del grafo");
+        Landmarks cotas = filtro.equalsIgnoreCase("transbordos") ? null : getLandmarks(filtro);
+        return new KCaminosYen(escenario, filtro, cotas).calcular(inicio, destino, k);
+    }
 
-        for (Parada p : mapa.keySet()) {
-            for (Ruta r : mapa.get(p)) {
-                r.resetValores();
-            }
-        }
+    /**
+     * obtenerFrentePareto
+     * Objetivo: todos los caminos no dominados en distancia, tiempo y costo a la vez,
+     *           bajo un escenario de eventos recién simulado (como obtenerMejorRuta).
+     * Retorno: FrentePareto.Resultado.
+     */
+    public FrentePareto.Resultado obtenerFrentePareto(Parada inicio, Parada destino) {
+        return obtenerFrentePareto(inicio, destino, simularEscenario(), FrentePareto.PRESUPUESTO_MS_POR_DEFECTO);
+    }
 
-        List<Ruta> caminoRutas = rutas
-                .getOrDefault(inicio, Collections.emptyMap())
-                .getOrDefault(destino, Collections.emptyList());
+    /**
+     * obtenerFrentePareto (con escenario)
+     * Objetivo: igual que la anterior con un escenario dado y un presupuesto de tiempo en milisegundos.
+     *           Si el presupuesto se acaba, el resultado trae lo encontrado con completo = false.
+     * Retorno: FrentePareto.Resultado.
+     */
+    public FrentePareto.Resultado obtenerFrentePareto(Parada inicio, Parada destino, Escenario escenario, long presupuestoMs) {
+        if (inicio == null || destino == null || escenario == null)
+            throw new IllegalArgumentException("inicio/destino/escenario no pueden ser null");
+        if (escenario.getVersion() != version)
+            throw new IllegalArgumentException("El escenario no corresponde a la versión actual del grafo");
+        Landmarks[] cotas = {getLandmarks("distancia"), getLandmarks("tiempo"), getLandmarks("costo")};
+        return new FrentePareto(escenario, cotas, presupuestoMs, FrentePareto.MAX_ETIQUETAS_POR_DEFECTO)
+                .calcular(inicio, destino);
+    }
 
-        if (caminoRutas.isEmpty()) return null;
+    /**
+     * calcularMatriz
+     * Objetivo: matriz origen-destino del peso mínimo según el filtro sobre la red actual
+     *           (sin eventos, respetando las rutas cerradas). Una búsqueda por origen, en paralelo.
+     * Retorno: MatrizViajes.
+     */
+    public MatrizViajes calcularMatriz(List<Parada> origenes, List<Parada> destinos, String filtro) {
+        return calcularMatriz(origenes, destinos, filtro, getEscenarioActual(), false);
+    }
+
+    /**
+     * calcularMatriz (con escenario)
+     * Objetivo: igual que la anterior bajo un escenario dado. Con guardarCaminos = true se conserva
+     *           el árbol de cada origen para armar los caminos sin volver a buscar (n enteros por origen).
+     * Retorno: MatrizViajes.
+     */
+    public MatrizViajes calcularMatriz(List<Parada> origenes, List<Parada> destinos, String filtro,
+                                       Escenario escenario, boolean guardarCaminos) {
+        if (filtro == null || filtro.isBlank() || escenario == null)
+            throw new IllegalArgumentException("filtro/escenario no pueden ser null");
+        if (escenario.getVersion() != version)
+            throw new IllegalArgumentException("El escenario no corresponde a la versión actual del grafo");
+        MinTransbordos transbordos = filtro.equalsIgnoreCase("transbordos") ? getMinTransbordos() : null;
+        return new MatrizViajes(escenario, origenes, destinos, filtro, guardarCaminos, transbordos);
+    }
 
-        double totalTiempo = 0;
-        double totalCosto = 0;
-        double totalDistancia = 0;
-        double totalPeso = 0;
+    /**
+     * simularEscenario
+     * Objetivo: sortear un evento para cada ruta (accidente, lluvia, retraso, etc.) y devolverlo como Escenario.
+     *           Antes reescribíamos tiempo/costo/estado/evento de cada ruta compartida y después había que resetearlas;
+     *           ahora las rutas del grafo no se tocan y cada consulta trabaja con su propio escenario.
+     *           Sin semilla elegimos una nueva; queda guardada en el escenario y en cada RutaMasCorta.
+     * Retorno: Escenario (las rutas cerradas del grafo también quedan cerradas en él).
+     */
+    public synchronized Escenario simularEscenario() {
+        return simularEscenario(semillas.nextLong());
+    }
 
-        for (Ruta r : caminoRutas) {
-            totalTiempo += r.getTiempo();
-            totalCosto += r.getCosto();
-            totalDistancia += r.getDistancia();
+    /**
+     * simularEscenario (con semilla)
+     * Objetivo: repetir una simulación: con la misma semilla, la misma tabla de eventos y la misma versión
+     *           del grafo sale exactamente el mismo escenario.
+     * Retorno: Escenario.
+     */
+    public synchronized Escenario simularEscenario(long semilla) {
+        return Escenario.simular(getCSR(), cerradas, semilla, tablaEventos);
+    }
 
-            switch (filtro.toLowerCase()) {
-                case "distancia" -> totalPeso += r.getDistancia();
-                case "tiempo"    -> totalPeso += r.getTiempo();
-                case "costo"     -> totalPeso += r.getCosto();
-            }
+    public synchronized TablaEventos getTablaEventos() {
+        return tablaEventos;
+    }
+
+    public synchronized void setTablaEventos(TablaEventos tablaEventos) {
+        if (tablaEventos == null) throw new IllegalArgumentException("La tabla de eventos no puede ser null");
+        this.tablaEventos = tablaEventos;
+    }
+
+    /**
+     * getEscenarioActual
+     * Objetivo: escenario sin eventos, solo con las rutas cerradas del grafo.
+     * Retorno: Escenario.
+     */
+    public synchronized Escenario getEscenarioActual() {
+        return Escenario.base(getCSR(), cerradas);
+    }
+
+    /**
+     * rutaMasCortaFloyd
+     * Objetivo: usar Floyd-Warshall para construir el camino óptimo según el filtro
+     *           y devolver el resumen en RutaMasCorta (totales base y transbordos).
+     *           Si la red es demasiado grande para la matriz, resuelve el par con Dijkstra bidireccional.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    private RutaMasCorta rutaMasCortaFloyd(Parada inicio, Parada destino, String filtro) {
+        GrafoCSR csr = getCSR();
+        if (!FloydWarshall.cabe(csr.getNumParadas())) {
+            // La matriz no entra en memoria: búsqueda punto a punto sobre la misma red base (sin cierres)
+            int s = csr.indiceDe(inicio);
+            int t = csr.indiceDe(destino);
+            if (s < 0 || t < 0) return null;
+            List<Ruta> camino = DijkstraBidireccional.buscar(csr, csr.pesos(filtro), new BitSet(), s, t);
+            return camino == null || camino.isEmpty() ? null : Dijkstra.construirResultadoBase(camino, filtro);
         }
+        FloydWarshall.Resultado rutas = getTodosLosPares(filtro);
 
-        String evento = caminoRutas.get(caminoRutas.size() - 1).getEvento();
+        GrafoCSR vista = rutas.getCSR();
+        int i = vista.indiceDe(inicio);
+        int j = vista.indiceDe(destino);
+        if (i < 0 || j < 0) return null;
+        List<Ruta> caminoRutas = rutas.camino(i, j);
 
-        RutaMasCorta rm = new RutaMasCorta(caminoRutas, totalTiempo, totalCosto, totalDistancia, totalPeso, filtro, evento);
-        // Nuevo: contar transbordos en FloydWarshall también
-        rm.setTransbordos(contarTransbordos(caminoRutas));
-        return rm;
+        if (caminoRutas.isEmpty()) return null;
+
+        // Totales con los valores base: Floyd-Warshall trabaja sobre la red sin eventos
+        return Dijkstra.construirResultadoBase(caminoRutas, filtro);
     }
 
     /**
@@ -335,57 +702,63 @@ public class Grafo {
     /**
      * cargarDesdeDB
      * Objetivo: traer paradas y rutas desde la base de datos y reconstruir el grafo en memoria.
-     *           Validamos que las paradas de cada ruta existan; si no, la ignoramos con log.
+     *           Bloquea hasta terminar; para no congelar la ventana usar CargaRed en otro hilo e instalarRed después.
      * Retorno: ninguno.
      */
     public void cargarDesdeDB() {
-        ParadaDAO paradaDAO = ParadaDAO.getInstance();
-        HashMap<Long, Parada> paradasDB = paradaDAO.obtenerParadas();
-        for (Parada p : paradasDB.values()) {
-            agregarParada(p);
-        }
+        instalarRed(CargaRed.getInstance().cargar(null));
+    }
 
-        RutaDAO rutaDAO = RutaDAO.getInstance();
-        HashMap<Long, Ruta> rutasDB = rutaDAO.obtenerRutas(new HashMap<>(), paradasDB);
-
-        for (Ruta r : rutasDB.values()) {
-            Parada inicio = r.getInicio();
-            Parada destino = r.getDestino();
-
-            if (inicio != null && destino != null) {
-                mapa.putIfAbsent(inicio, new ArrayList<>());
-                mapa.get(inicio).add(r);
-                destino.agregarRutaDeEntrada(r);
-            } else {
-                System.out.println("Ruta ignorada por tener parada inexistente: " + r.getNombre() +
-                        " | Inicio: " + (inicio != null ? inicio.getNombre() : "null") +
-                        " | Destino: " + (destino != null ? destino.getNombre() : "null"));
-            }
+    /**
+     * instalarRed
+     * Objetivo: incorporar la red leída por CargaRed. Si el grafo está vacío (al iniciar) se adopta
+     *           la lista de adyacencia tal cual, sin copiarla; si no, se agregan sus paradas.
+     *           Se llama en el hilo de JavaFX porque la lista de paradas es observable.
+     * Retorno: ninguno.
+     */
+    public void instalarRed(CargaRed.Resultado red) {
+        boolean vacio = mapa.isEmpty();
+        if (vacio) mapa = red.salientes;
+        else mapa.putAll(red.salientes);
+        paradas.addAll(red.paradas); // Un solo aviso a la UI para toda la red
+
+        for (List<Ruta> salida : red.salientes.values()) {
+            for (Ruta r : salida) registrarRuta(r);
         }
+        marcarCambio();
+        // Sin la red completa no hay marca: una instantánea guardada con ella perdería para siempre las filas
+        // que faltaron (el próximo arranque solo pide lo cambiado desde la marca). Queda la instantánea anterior.
+        marcaRed = red.completa ? red.marca : -1;
+
+        // Arranque desde una instantánea sin cambios: los índices guardados sirven para esta versión
+        if (vacio && red.instantanea != null) adoptarIndices(red.instantanea);
     }
 
-    // Método para contar transbordos (no altera comentarios existentes)
-    private int contarTransbordos(List<Ruta> path) {
-        if (path == null || path.isEmpty()) return 0;
-        java.util.function.Function<Ruta,String> lineaDe = r -> {
-            Parada p = r.getInicio();
-            String tipo = (p != null && p.getTipo() != null && !p.getTipo().isBlank()) ? p.getTipo()
-                    : (r.getDestino()!=null && r.getDestino().getTipo()!=null && !r.getDestino().getTipo().isBlank()
-                    ? r.getDestino().getTipo()
-                    : r.getNombre());
-            String s = java.text.Normalizer.normalize(tipo, java.text.Normalizer.Form.NFD)
-                    .replaceAll("\\p{InCombiningDiacriticalMarks}+", "")
-                    .toLowerCase(java.util.Locale.ROOT)
-                    .trim();
-            return s.isBlank() ? "-" : s;
-        };
-        String prev = null;
-        int trans = 0;
-        for (Ruta r : path) {
-            String lin = lineaDe.apply(r);
-            if (prev != null && !prev.equals(lin)) trans++;
-            prev = lin;
-        }
-        return trans;
+    /**
+     * adoptarIndices
+     * Objetivo: tomar los landmarks, jerarquías y todos-los-pares guardados en la instantánea
+     *           si la vista CSR que se armó es la misma que se guardó.
+     * Retorno: ninguno.
+     */
+    private synchronized void adoptarIndices(Instantanea instantanea) {
+        Map<String, FloydWarshall.Resultado> pares = new HashMap<>();
+        if (!instantanea.adoptarIndices(getCSR(), landmarks, jerarquias, pares)) return;
+        todosLosPares.clear();
+        todosLosPares.putAll(pares);
+        versionTodosLosPares = version;
+    }
+
+    /**
+     * guardarInstantanea
+     * Objetivo: escribir la red actual y sus índices ya calculados en un archivo binario para el próximo arranque.
+     *           Solo tiene sentido si la red se leyó completa de la base (hace falta la marca para pedir después
+     *           los cambios).
+     * Retorno: boolean (false si no hay marca y no se escribió nada).
+     */
+    public synchronized boolean guardarInstantanea(Path archivo) throws IOException {
+        if (marcaRed < 0) return false;
+        Map<String, FloydWarshall.Resultado> pares = versionTodosLosPares == version ? todosLosPares : Map.of();
+        Instantanea.escribir(archivo, getCSR(), marcaRed, landmarks.values(), jerarquias.values(), pares);
+        return true;
     }
 }
\ No newline at end of file
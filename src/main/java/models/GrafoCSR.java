@@ -0,0 +1,181 @@
+package models;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Nombre de la clase: GrafoCSR
+ *
+ * Objetivo:
+ * - Tener una vista "congelada" del Grafo indexada por enteros, en formato CSR (compressed sparse row).
+ *   Cada parada recibe un índice 0..n-1 y las rutas que salen de la parada i quedan guardadas
+ *   de forma contigua en [offset[i], offset[i+1]) dentro de arreglos paralelos.
+ * - Los algoritmos recorren arreglos primitivos en vez de hacer búsquedas en HashMap
+ *   y saltar entre objetos Ruta, que era la mayor parte del tiempo (y de la memoria) en redes grandes.
+ *
+ * Nota:
+ * - La vista no se modifica. El Grafo la reconstruye solo cuando cambia su versión
+ *   (agregar/eliminar/modificar paradas o rutas).
+ * - Los pesos guardados son los valores base (distancia, tiempoBase, costoBase).
+ */
+public class GrafoCSR {
+
+    private final long version;
+
+    private final Parada[] paradas;              // índice -> parada
+    private final Map<Parada, Integer> indices;  // parada -> índice
+
+    private final int[] offset;     // tamaño n+1: rutas de i en [offset[i], offset[i+1])
+    private final int[] origen;     // parada de inicio de cada ruta
+    private final int[] destino;    // parada destino de cada ruta
+    private final Ruta[] rutas;     // ruta original, para reconstruir caminos
+
+    private final int[] offsetEntrada; // tamaño n+1: rutas que llegan a i en [offsetEntrada[i], offsetEntrada[i+1])
+    private final int[] rutasEntrada;  // índices de ruta agrupados por parada destino
+
+    private final double[] distancia;
+    private final double[] tiempo;
+    private final double[] costo;
+
+    /**
+     * GrafoCSR
+     * Objetivo: construir la vista a partir del mapa del grafo (parada -> rutas que salen).
+     *           Primero numeramos las paradas y luego copiamos las rutas en orden de salida.
+     * Retorno: ninguno.
+     */
+    GrafoCSR(Map<Parada, List<Ruta>> mapa, long version) {
+        this.version = version;
+
+        int n = mapa.size();
+        paradas = new Parada[n];
+        indices = new IdentityHashMap<>(n * 2);
+
+        int m = 0;
+        int i = 0;
+        for (Map.Entry<Parada, List<Ruta>> e : mapa.entrySet()) {
+            paradas[i] = e.getKey();
+            indices.put(e.getKey(), i);
+            m += e.getValue().size();
+            i++;
+        }
+
+        offset = new int[n + 1];
+        origen = new int[m];
+        destino = new int[m];
+        rutas = new Ruta[m];
+        distancia = new double[m];
+        tiempo = new double[m];
+        costo = new double[m];
+
+        int pos = 0;
+        for (int u = 0; u < n; u++) {
+            offset[u] = pos;
+            for (Ruta r : mapa.get(paradas[u])) {
+                Integer v = indices.get(r.getDestino());
+                if (v == null) continue; // destino fuera del mapa, no se puede indexar
+                origen[pos] = u;
+                destino[pos] = v;
+                rutas[pos] = r;
+                r.setIndice(pos);
+                distancia[pos] = r.getDistancia();
+                tiempo[pos] = r.getTiempoBase();
+                costo[pos] = r.getCostoBase();
+                pos++;
+            }
+        }
+        offset[n] = pos;
+
+        // Índice inverso (rutas de entrada): conteo por destino y luego reparto,
+        // igual que Parada.getRutasDeEntrada pero en arreglos.
+        offsetEntrada = new int[n + 1];
+        rutasEntrada = new int[pos];
+        for (int e = 0; e < pos; e++) offsetEntrada[destino[e] + 1]++;
+        for (int v = 0; v < n; v++) offsetEntrada[v + 1] += offsetEntrada[v];
+        int[] siguiente = Arrays.copyOf(offsetEntrada, n);
+        for (int e = 0; e < pos; e++) rutasEntrada[siguiente[destino[e]]++] = e;
+    }
+
+    public long getVersion() { return version; }
+
+    public int getNumParadas() { return paradas.length; }
+
+    public int getNumRutas() { return offset[paradas.length]; }
+
+    /**
+     * indiceDe
+     * Objetivo: traducir una parada a su índice dentro de la vista.
+     * Retorno: índice o -1 si la parada no pertenece al grafo.
+     */
+    public int indiceDe(Parada p) {
+        Integer i = indices.get(p);
+        return i == null ? -1 : i;
+    }
+
+    public Parada getParada(int i) { return paradas[i]; }
+
+    public Ruta getRuta(int e) { return rutas[e]; }
+
+    public int[] getOffset() { return offset; }
+
+    public int[] getOrigen() { return origen; }
+
+    public int[] getDestino() { return destino; }
+
+    public int[] getOffsetEntrada() { return offsetEntrada; }
+
+    public int[] getRutasEntrada() { return rutasEntrada; }
+
+    public double[] getDistancia() { return distancia; }
+
+    public double[] getTiempo() { return tiempo; }
+
+    public double[] getCosto() { return costo; }
+
+    /**
+     * pesos
+     * Objetivo: devolver el arreglo de pesos base que corresponde al filtro.
+     *           Es el mismo arreglo interno, así que no se debe modificar.
+     * Retorno: double[] indexado por ruta.
+     */
+    public double[] pesos(String filtro) {
+        return switch (filtro.toLowerCase(Locale.ROOT)) {
+            case "distancia" -> distancia;
+            case "tiempo"    -> tiempo;
+            case "costo"     -> costo;
+            default -> throw new IllegalArgumentException("Filtro inválido: " + filtro);
+        };
+    }
+
+    /**
+     * pesosActuales
+     * Objetivo: copiar los valores que tiene guardados cada ruta en este momento a un arreglo nuevo,
+     *           para los algoritmos que leen directo de las rutas (los eventos simulados viven en Escenario).
+     * Retorno: double[] indexado por ruta.
+     */
+    public double[] pesosActuales(String filtro) {
+        String f = filtro.toLowerCase(Locale.ROOT);
+        int m = getNumRutas();
+        double[] w = new double[m];
+        for (int e = 0; e < m; e++) {
+            w[e] = switch (f) {
+                case "distancia" -> rutas[e].getDistancia();
+                case "tiempo"    -> rutas[e].getTiempo();
+                case "costo"     -> rutas[e].getCosto();
+                default -> throw new IllegalArgumentException("Filtro inválido: " + filtro);
+            };
+        }
+        return w;
+    }
+
+    /**
+     * abierta
+     * Objetivo: saber si la ruta e está abierta en este momento.
+     * Retorno: boolean.
+     */
+    public boolean abierta(int e) {
+        return rutas[e].isEstado();
+    }
+}
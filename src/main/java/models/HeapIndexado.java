@@ -0,0 +1,125 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Nombre de la clase: HeapIndexado
+ *
+ * Objetivo:
+ * - Cola de prioridad mínima para enteros 0..n-1 (índices de parada) con claves double.
+ * - A diferencia de PriorityQueue, cada parada aparece a lo sumo una vez: si encontramos un
+ *   camino mejor, bajamos su clave en el mismo lugar (decrease-key) en vez de meter otro nodo.
+ *   Así la cola nunca pasa de n elementos y no hay entradas viejas que filtrar.
+ *
+ * Nota:
+ * - Todo vive en arreglos primitivos: heap[] guarda los elementos, pos[] dice dónde está cada uno
+ *   (-1 si no está) y clave[] su prioridad actual.
+ */
+public class HeapIndexado {
+
+    private final int[] heap;
+    private final int[] pos;
+    private final double[] clave;
+    private int tamano;
+
+    public HeapIndexado(int capacidad) {
+        heap = new int[capacidad];
+        pos = new int[capacidad];
+        clave = new double[capacidad];
+        Arrays.fill(pos, -1);
+    }
+
+    public boolean isEmpty() { return tamano == 0; }
+
+    public int size() { return tamano; }
+
+    public boolean contiene(int v) { return pos[v] >= 0; }
+
+    public double getClave(int v) { return clave[v]; }
+
+    /**
+     * claveMin
+     * Objetivo: consultar la menor clave sin sacar el elemento (infinito si está vacío).
+     * Retorno: double.
+     */
+    public double claveMin() {
+        return tamano == 0 ? Double.POSITIVE_INFINITY : clave[heap[0]];
+    }
+
+    /**
+     * insertarOActualizar
+     * Objetivo: meter v con la clave dada o, si ya estaba, bajarle la clave.
+     *           Si la clave nueva no es menor que la actual, no se hace nada.
+     * Retorno: ninguno.
+     */
+    public void insertarOActualizar(int v, double nuevaClave) {
+        if (pos[v] < 0) {
+            heap[tamano] = v;
+            pos[v] = tamano;
+            clave[v] = nuevaClave;
+            subir(tamano++);
+        } else if (nuevaClave < clave[v]) {
+            clave[v] = nuevaClave;
+            subir(pos[v]);
+        }
+    }
+
+    /**
+     * extraerMin
+     * Objetivo: sacar el elemento con menor clave (su clave queda disponible en getClave).
+     * Retorno: int con el elemento.
+     */
+    public int extraerMin() {
+        int min = heap[0];
+        pos[min] = -1;
+        tamano--;
+        if (tamano > 0) {
+            heap[0] = heap[tamano];
+            pos[heap[0]] = 0;
+            bajar(0);
+        }
+        return min;
+    }
+
+    /**
+     * limpiar
+     * Objetivo: vaciar el heap para reutilizarlo en otra búsqueda sin volver a reservar memoria.
+     * Retorno: ninguno.
+     */
+    public void limpiar() {
+        for (int i = 0; i < tamano; i++) pos[heap[i]] = -1;
+        tamano = 0;
+    }
+
+    private void subir(int i) {
+        int v = heap[i];
+        double k = clave[v];
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            int p = heap[padre];
+            if (clave[p] <= k) break;
+            heap[i] = p;
+            pos[p] = i;
+            i = padre;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+
+    private void bajar(int i) {
+        int v = heap[i];
+        double k = clave[v];
+        int mitad = tamano >>> 1;
+        while (i < mitad) {
+            int hijo = 2 * i + 1;
+            int der = hijo + 1;
+            if (der < tamano && clave[heap[der]] < clave[heap[hijo]]) hijo = der;
+            if (k <= clave[heap[hijo]]) break;
+            heap[i] = heap[hijo];
+            pos[heap[i]] = i;
+            i = hijo;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+}
@@ -0,0 +1,437 @@
+package models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Nombre de la clase: Instantanea
+ *
+ * Objetivo:
+ * - Guardar la red en un archivo binario para arrancar sin leer todo de PostgreSQL: paradas, rutas
+ *   (en el orden de la vista CSR, con sus pesos base), ids de línea y los índices ya calculados
+ *   (landmarks, Contraction Hierarchies y Floyd-Warshall de la versión actual).
+ * - Al leer, el archivo se mapea en memoria (FileChannel.map) y los arreglos se copian en bloque.
+ *   Las paradas se devuelven en un LinkedHashMap con el mismo orden, así la CSR que arme el Grafo
+ *   tiene los mismos índices y los índices guardados le sirven tal cual.
+ *
+ * Nota:
+ * - La marca es el horizonte de transacciones de PostgreSQL con el que se leyó la red: toda fila modificada
+ *   por una transacción anterior ya está en el archivo. Al arrancar solo se piden las filas más nuevas (ver CargaRed).
+ * - Si hubo cambios, los índices guardados no se usan (pueden depender de un peso que cambió) y se rehacen al pedirlos.
+ * - El archivo empieza con MAGICO y FORMATO y termina con MAGICO; un archivo de otro formato o cortado se rechaza.
+ *   Se escribe en un temporal y se reemplaza de una vez, así nunca queda uno a medias.
+ */
+public final class Instantanea {
+
+    static final int MAGICO = 0x52454431; // "RED1"
+    public static final int FORMATO = 1;
+    // Floyd-Warshall guarda n² distancias y n² next-hop: con redes grandes no vale la pena escribirlo
+    static final long LIMITE_BYTES_TODOS_LOS_PARES = 256L << 20;
+
+    // Tipos de bloque de índices
+    private static final byte LANDMARKS = 1;
+    private static final byte JERARQUIA = 2;
+    private static final byte TODOS_LOS_PARES = 3;
+
+    private final long marca;
+    private final List<Parada> paradas;
+    private final Map<Parada, List<Ruta>> salientes;
+    private final int numRutas;
+
+    // Forma de la CSR guardada, para comprobar que la del Grafo quedó igual antes de usar los índices
+    private final int[] offset;
+    private final int[] destino;
+
+    // Índices leídos: cada uno se rearma sobre la CSR del Grafo cuando se confirma que coincide
+    private final List<IndiceGuardado> indices = new ArrayList<>();
+
+    private interface IndiceGuardado {
+        void adoptar(GrafoCSR csr, Map<String, Landmarks> landmarks, Map<String, ContraccionJerarquica> jerarquias,
+                     Map<String, FloydWarshall.Resultado> pares);
+    }
+
+    private Instantanea(long marca, List<Parada> paradas, Map<Parada, List<Ruta>> salientes, int numRutas, int[] offset, int[] destino) {
+        this.marca = marca;
+        this.paradas = paradas;
+        this.salientes = salientes;
+        this.numRutas = numRutas;
+        this.offset = offset;
+        this.destino = destino;
+    }
+
+    public long getMarca() { return marca; }
+
+    public List<Parada> getParadas() { return paradas; }
+
+    public Map<Parada, List<Ruta>> getSalientes() { return salientes; }
+
+    public int getNumRutas() { return numRutas; }
+
+    // ---------------- ESCRITURA ----------------
+
+    /**
+     * escribir
+     * Objetivo: guardar la vista CSR (paradas, rutas y pesos base) con la marca y los índices que vengan.
+     *           Solo se guardan índices calculados sobre esa misma vista.
+     * Retorno: ninguno.
+     */
+    static void escribir(Path archivo, GrafoCSR csr, long marca, Collection<Landmarks> landmarks,
+                         Collection<ContraccionJerarquica> jerarquias, Map<String, FloydWarshall.Resultado> pares) throws IOException {
+        int n = csr.getNumParadas();
+        int m = csr.getNumRutas();
+        int numLineas = Lineas.cantidad();
+
+        List<Object> bloques = new ArrayList<>();
+        for (Landmarks l : landmarks) if (l.getVersion() == csr.getVersion()) bloques.add(l);
+        for (ContraccionJerarquica ch : jerarquias) if (ch.getVersion() == csr.getVersion()) bloques.add(ch);
+        for (Map.Entry<String, FloydWarshall.Resultado> e : pares.entrySet()) {
+            if (e.getValue().getCSR() == csr && 12L * n * n <= LIMITE_BYTES_TODOS_LOS_PARES) bloques.add(e);
+        }
+
+        Path carpeta = archivo.toAbsolutePath().getParent();
+        if (carpeta != null) Files.createDirectories(carpeta);
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+
+        try (Escritor out = new Escritor(FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            out.entero(MAGICO);
+            out.entero(FORMATO);
+            out.largo(marca);
+            out.entero(n);
+            out.entero(m);
+            out.entero(numLineas);
+            for (int i = 0; i < numLineas; i++) out.texto(Lineas.nombreDe(i));
+
+            // Paradas
+            long[] ids = new long[n];
+            int[] lineas = new int[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = csr.getParada(i).getId();
+                lineas[i] = csr.getParada(i).getLinea();
+            }
+            out.largos(ids, n);
+            out.enteros(lineas, n);
+            for (int i = 0; i < n; i++) {
+                out.texto(csr.getParada(i).getNombre());
+                out.texto(csr.getParada(i).getTipo());
+            }
+
+            // Rutas en orden CSR: las de la parada u están en [offset[u], offset[u+1])
+            long[] idsRutas = new long[m];
+            byte[] estados = new byte[m];
+            int[] lineasNombre = new int[m];
+            for (int e = 0; e < m; e++) {
+                Ruta r = csr.getRuta(e);
+                idsRutas[e] = r.getId();
+                estados[e] = (byte) (r.isEstado() ? 1 : 0);
+                lineasNombre[e] = r.getLineaNombre();
+            }
+            out.enteros(csr.getOffset(), n + 1);
+            out.enteros(csr.getDestino(), m);
+            out.largos(idsRutas, m);
+            out.dobles(csr.getDistancia(), m);
+            out.dobles(csr.getTiempo(), m);
+            out.dobles(csr.getCosto(), m);
+            out.bytes(estados, m);
+            out.enteros(lineasNombre, m);
+            for (int e = 0; e < m; e++) {
+                Ruta r = csr.getRuta(e);
+                out.texto(r.getNombre());
+                out.texto(r.getEvento());
+                out.texto(r.getTransbordo());
+            }
+
+            // Índices
+            out.entero(bloques.size());
+            for (Object bloque : bloques) {
+                if (bloque instanceof Landmarks l) {
+                    out.bytes(new byte[]{LANDMARKS}, 1);
+                    out.texto(l.getFiltro());
+                    int k = l.getCantidad();
+                    out.entero(k);
+                    out.enteros(l.getIndices(), k);
+                    for (int i = 0; i < k; i++) out.dobles(l.getDesde()[i], n);
+                    for (int i = 0; i < k; i++) out.dobles(l.getHacia()[i], n);
+                } else if (bloque instanceof ContraccionJerarquica ch) {
+                    out.bytes(new byte[]{JERARQUIA}, 1);
+                    out.texto(ch.getFiltro());
+                    int a = ch.getNumAristas();
+                    out.entero(a);
+                    out.enteros(ch.getRango(), n);
+                    out.enteros(ch.getAristaDesde(), a);
+                    out.enteros(ch.getAristaHacia(), a);
+                    out.dobles(ch.getAristaPeso(), a);
+                    out.enteros(ch.getHijoA(), a);
+                    out.enteros(ch.getHijoB(), a);
+                    out.enteros(ch.getRutaOriginal(), a);
+                } else if (bloque instanceof Map.Entry<?, ?> e && e.getValue() instanceof FloydWarshall.Resultado r) {
+                    out.bytes(new byte[]{TODOS_LOS_PARES}, 1);
+                    out.texto((String) e.getKey());
+                    out.dobles(r.getDist(), n * n);
+                    out.enteros(r.getSiguiente(), n * n);
+                }
+            }
+            out.entero(MAGICO);
+            out.forzar();
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---------------- LECTURA ----------------
+
+    /**
+     * leer
+     * Objetivo: mapear el archivo y rearmar paradas y rutas (enganchadas en ambos sentidos) y los índices guardados.
+     * Retorno: Instantanea.
+     */
+    public static Instantanea leer(Path archivo) throws IOException {
+        MappedByteBuffer mapa;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano > Integer.MAX_VALUE) throw new IOException("Instantánea demasiado grande: " + tamano + " bytes");
+            mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+        }
+        ByteBuffer in = mapa.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != MAGICO) throw new IOException("El archivo no es una instantánea de la red");
+            int formato = in.getInt();
+            if (formato != FORMATO) throw new IOException("Formato de instantánea " + formato + ", se esperaba " + FORMATO);
+            if (in.getInt(in.limit() - 4) != MAGICO) throw new IOException("Instantánea incompleta");
+
+            long marca = in.getLong();
+            int n = in.getInt();
+            int m = in.getInt();
+
+            // Los ids de línea dependen del orden en que se registraron: se traducen a los de esta ejecución
+            int numLineas = in.getInt();
+            int[] linea = new int[numLineas];
+            for (int i = 0; i < numLineas; i++) linea[i] = Lineas.idDe(texto(in));
+
+            long[] ids = largos(in, n);
+            int[] lineas = enteros(in, n);
+            List<Parada> paradas = new ArrayList<>(n);
+            Map<Parada, List<Ruta>> salientes = new LinkedHashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                String nombre = texto(in);
+                String tipo = texto(in);
+                Parada p = new Parada(nombre, tipo, lineas[i] == Lineas.SIN_LINEA ? Lineas.SIN_LINEA : linea[lineas[i]]);
+                p.setId(ids[i]);
+                paradas.add(p);
+            }
+
+            int[] offset = enteros(in, n + 1);
+            int[] destino = enteros(in, m);
+            long[] idsRutas = largos(in, m);
+            double[] distancia = dobles(in, m);
+            double[] tiempo = dobles(in, m);
+            double[] costo = dobles(in, m);
+            byte[] estados = new byte[m];
+            in.get(estados);
+            int[] lineasNombre = enteros(in, m);
+            for (int u = 0; u < n; u++) {
+                Parada inicio = paradas.get(u);
+                List<Ruta> salida = new ArrayList<>(offset[u + 1] - offset[u]);
+                for (int e = offset[u]; e < offset[u + 1]; e++) {
+                    String nombre = texto(in);
+                    Parada fin = paradas.get(destino[e]);
+                    Ruta r = new Ruta(nombre, inicio, fin, distancia[e], tiempo[e], costo[e], linea[lineasNombre[e]]);
+                    r.setId(idsRutas[e]);
+                    r.setEstado(estados[e] != 0);
+                    r.setEvento(texto(in));
+                    r.setTransbordo(texto(in));
+                    salida.add(r);
+                    fin.agregarRutaDeEntrada(r);
+                }
+                salientes.put(inicio, salida);
+            }
+
+            Instantanea inst = new Instantanea(marca, paradas, salientes, m, offset, destino);
+            int numBloques = in.getInt();
+            for (int b = 0; b < numBloques; b++) {
+                byte tipo = in.get();
+                String filtro = texto(in);
+                switch (tipo) {
+                    case LANDMARKS -> {
+                        int k = in.getInt();
+                        int[] indices = enteros(in, k);
+                        double[][] desde = new double[k][];
+                        double[][] hacia = new double[k][];
+                        for (int i = 0; i < k; i++) desde[i] = dobles(in, n);
+                        for (int i = 0; i < k; i++) hacia[i] = dobles(in, n);
+                        inst.indices.add((csr, lm, ch, fw) -> lm.put(filtro, new Landmarks(csr, filtro, indices, desde, hacia)));
+                    }
+                    case JERARQUIA -> {
+                        int a = in.getInt();
+                        int[] rango = enteros(in, n);
+                        int[] desde = enteros(in, a);
+                        int[] hacia = enteros(in, a);
+                        double[] peso = dobles(in, a);
+                        int[] hijoA = enteros(in, a);
+                        int[] hijoB = enteros(in, a);
+                        int[] rutaOriginal = enteros(in, a);
+                        inst.indices.add((csr, lm, ch, fw) -> ch.put(filtro, new ContraccionJerarquica(csr, filtro, rango, a,
+                                desde, hacia, peso, hijoA, hijoB, rutaOriginal)));
+                    }
+                    case TODOS_LOS_PARES -> {
+                        if (12L * n * n > LIMITE_BYTES_TODOS_LOS_PARES)
+                            throw new IOException("Bloque de todos los pares demasiado grande: " + n + " paradas");
+                        double[] dist = dobles(in, n * n);
+                        int[] siguiente = enteros(in, n * n);
+                        inst.indices.add((csr, lm, ch, fw) -> fw.put(filtro, new FloydWarshall.Resultado(csr, dist, siguiente)));
+                    }
+                    default -> throw new IOException("Bloque de índices desconocido: " + tipo);
+                }
+            }
+            return inst;
+        } catch (RuntimeException e) { // BufferUnderflow, índices fuera de rango, nombre vacío...
+            throw new IOException("Instantánea dañada", e);
+        }
+    }
+
+    /**
+     * adoptarIndices
+     * Objetivo: si la vista CSR del Grafo quedó idéntica a la guardada, entregar los índices rearmados sobre ella.
+     * Retorno: boolean (false si la vista no coincide y no se entregó nada).
+     */
+    boolean adoptarIndices(GrafoCSR csr, Map<String, Landmarks> destinoLandmarks,
+                           Map<String, ContraccionJerarquica> destinoJerarquias,
+                           Map<String, FloydWarshall.Resultado> destinoPares) {
+        if (csr.getNumParadas() != paradas.size() || csr.getNumRutas() != numRutas) return false;
+        if (!Arrays.equals(csr.getOffset(), offset) || !Arrays.equals(csr.getDestino(), destino)) return false;
+        for (int i = 0; i < paradas.size(); i++) {
+            if (csr.getParada(i) != paradas.get(i)) return false;
+        }
+
+        for (IndiceGuardado indice : indices) indice.adoptar(csr, destinoLandmarks, destinoJerarquias, destinoPares);
+        return true;
+    }
+
+    private static String texto(ByteBuffer in) {
+        int largo = in.getInt();
+        if (largo < 0) return null;
+        byte[] b = new byte[largo];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static int[] enteros(ByteBuffer in, int cantidad) {
+        int[] a = new int[cantidad];
+        in.asIntBuffer().get(a);
+        in.position(in.position() + cantidad * 4);
+        return a;
+    }
+
+    private static long[] largos(ByteBuffer in, int cantidad) {
+        long[] a = new long[cantidad];
+        in.asLongBuffer().get(a);
+        in.position(in.position() + cantidad * 8);
+        return a;
+    }
+
+    private static double[] dobles(ByteBuffer in, int cantidad) {
+        double[] a = new double[cantidad];
+        in.asDoubleBuffer().get(a);
+        in.position(in.position() + cantidad * 8);
+        return a;
+    }
+
+    /**
+     * Clase Escritor
+     * Propósito: escribir números y arreglos en little-endian a través de un buffer de 1 MB,
+     *            vaciándolo en el canal cuando se llena.
+     */
+    private static final class Escritor implements Closeable {
+        private final FileChannel canal;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+        Escritor(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        void entero(int v) throws IOException {
+            lugar(4);
+            buf.putInt(v);
+        }
+
+        void largo(long v) throws IOException {
+            lugar(8);
+            buf.putLong(v);
+        }
+
+        void texto(String s) throws IOException {
+            if (s == null) {
+                entero(-1);
+                return;
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            entero(b.length);
+            bytes(b, b.length);
+        }
+
+        void bytes(byte[] a, int cantidad) throws IOException {
+            for (int i = 0; i < cantidad; ) {
+                lugar(1);
+                int k = Math.min(cantidad - i, buf.remaining());
+                buf.put(a, i, k);
+                i += k;
+            }
+        }
+
+        void enteros(int[] a, int cantidad) throws IOException {
+            for (int i = 0; i < cantidad; ) {
+                lugar(4);
+                int k = Math.min(cantidad - i, buf.remaining() / 4);
+                buf.asIntBuffer().put(a, i, k);
+                buf.position(buf.position() + k * 4);
+                i += k;
+            }
+        }
+
+        void largos(long[] a, int cantidad) throws IOException {
+            for (int i = 0; i < cantidad; ) {
+                lugar(8);
+                int k = Math.min(cantidad - i, buf.remaining() / 8);
+                buf.asLongBuffer().put(a, i, k);
+                buf.position(buf.position() + k * 8);
+                i += k;
+            }
+        }
+
+        void dobles(double[] a, int cantidad) throws IOException {
+            for (int i = 0; i < cantidad; ) {
+                lugar(8);
+                int k = Math.min(cantidad - i, buf.remaining() / 8);
+                buf.asDoubleBuffer().put(a, i, k);
+                buf.position(buf.position() + k * 8);
+                i += k;
+            }
+        }
+
+        private void lugar(int bytes) throws IOException {
+            if (buf.remaining() < bytes) vaciar();
+        }
+
+        private void vaciar() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) canal.write(buf);
+            buf.clear();
+        }
+
+        void forzar() throws IOException {
+            vaciar();
+            canal.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
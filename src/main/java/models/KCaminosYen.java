@@ -0,0 +1,283 @@
+package models;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Nombre de la clase: KCaminosYen
+ *
+ * Objetivo:
+ * - Dar hasta K caminos sin ciclos ordenados del mejor al peor (algoritmo de Yen), para ofrecer
+ *   alternativas a la ruta óptima ("dame 3 opciones").
+ * - Cada camino nuevo sale de desviar el anterior en alguna de sus paradas (parada de desvío):
+ *   se mantiene la raíz hasta esa parada, se prohíben las rutas que ya usaron los caminos con la misma raíz
+ *   y las paradas de la raíz (para no formar ciclos), y se busca el resto hasta el destino.
+ *
+ * Nota:
+ * - Las búsquedas de desvío de una misma ronda son independientes y corren en paralelo.
+ *   Cada hilo reutiliza sus arreglos entre desvíos: las distancias se "borran" subiendo un número de generación
+ *   en vez de rellenar n casillas, y la heurística (cota de Landmarks hacia el destino) se calcula una sola vez por parada.
+ * - Solo se desvía desde la parada donde el camino anterior se separó de su padre en adelante (mejora de Lawler):
+ *   los desvíos anteriores ya se probaron y darían caminos repetidos.
+ * - Trabaja con los pesos y cierres de un escenario; el filtro "transbordos" no es un peso por ruta y no se admite.
+ */
+public class KCaminosYen {
+
+    public static final double INFINITO = Double.POSITIVE_INFINITY;
+
+    private final Escenario escenario;
+    private final GrafoCSR csr;
+    private final String filtro;
+    private final double[] pesos;
+    private final BitSet cerradas;
+    private final Landmarks landmarks; // null = sin heurística (Dijkstra)
+
+    /**
+     * Clase Camino
+     * Propósito: camino como índices de ruta en la vista CSR, con su peso y la posición donde se desvió de su padre.
+     */
+    static final class Camino {
+        final int[] rutas;
+        final double peso;
+        final int desvio;
+        private final int hash;
+
+        Camino(int[] rutas, double peso, int desvio) {
+            this.rutas = rutas;
+            this.peso = peso;
+            this.desvio = desvio;
+            this.hash = Arrays.hashCode(rutas);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Camino c && Arrays.equals(rutas, c.rutas);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // Orden de los candidatos: peso, luego menos rutas, luego índices (para que el resultado no dependa de los hilos)
+    private static final Comparator<Camino> ORDEN = Comparator.<Camino>comparingDouble(c -> c.peso)
+            .thenComparingInt(c -> c.rutas.length)
+            .thenComparing((a, b) -> Arrays.compare(a.rutas, b.rutas));
+
+    /**
+     * Buffers por hilo para las búsquedas de una consulta (el destino es siempre el mismo).
+     */
+    private static class Buffers {
+        final double[] g;
+        final double[] h;          // cota hacia el destino, NaN = no calculada (sirve para todos los desvíos)
+        final int[] rutaPrev;
+        final int[] marca;         // g[v] y rutaPrev[v] valen solo si marca[v] == generacion
+        int generacion;
+        final HeapIndexado cola;
+        final BitSet rutasProhibidas;
+        final BitSet paradasProhibidas;
+
+        Buffers(int n) {
+            g = new double[n];
+            h = new double[n];
+            rutaPrev = new int[n];
+            marca = new int[n];
+            Arrays.fill(h, Double.NaN);
+            cola = new HeapIndexado(n);
+            rutasProhibidas = new BitSet();
+            paradasProhibidas = new BitSet(n);
+        }
+
+        void nuevaBusqueda() {
+            if (++generacion == 0) { // Dio la vuelta: limpiamos de verdad una vez
+                Arrays.fill(marca, 0);
+                generacion = 1;
+            }
+            cola.limpiar();
+        }
+
+        double g(int v) {
+            return marca[v] == generacion ? g[v] : INFINITO;
+        }
+    }
+
+    /**
+     * KCaminosYen
+     * Objetivo: preparar la búsqueda con los pesos y cierres del escenario.
+     *           landmarks puede ser null; si viene debe ser de la misma versión que el escenario.
+     * Retorno: ninguno.
+     */
+    KCaminosYen(Escenario escenario, String filtro, Landmarks landmarks) {
+        if (escenario == null || filtro == null || filtro.isBlank()) {
+            throw new IllegalArgumentException("escenario/filtro no pueden ser null");
+        }
+        if (filtro.equalsIgnoreCase("transbordos")) {
+            throw new IllegalArgumentException("Las alternativas solo se calculan por distancia, tiempo o costo");
+        }
+        this.escenario = escenario;
+        this.csr = escenario.getCSR();
+        this.filtro = filtro.toLowerCase(Locale.ROOT);
+        this.pesos = escenario.pesos(this.filtro);
+        this.cerradas = escenario.cerradas();
+        this.landmarks = landmarks != null && landmarks.getVersion() == escenario.getVersion() ? landmarks : null;
+    }
+
+    /**
+     * calcular
+     * Objetivo: hasta k caminos sin ciclos de inicio a destino, del mejor al peor, con los totales del escenario.
+     * Retorno: List<RutaMasCorta> (vacía si no hay camino o si inicio == destino).
+     */
+    public List<RutaMasCorta> calcular(Parada inicio, Parada destino, int k) {
+        if (inicio == null || destino == null) throw new IllegalArgumentException("inicio/destino no pueden ser null");
+        if (k <= 0) throw new IllegalArgumentException("k debe ser positivo");
+        int s = csr.indiceDe(inicio);
+        int t = csr.indiceDe(destino);
+        List<RutaMasCorta> resultado = new ArrayList<>();
+        if (s < 0 || t < 0 || s == t) return resultado;
+
+        for (Camino c : caminos(s, t, k)) {
+            List<Ruta> rutas = new ArrayList<>(c.rutas.length);
+            for (int e : c.rutas) rutas.add(csr.getRuta(e));
+            resultado.add(escenario.resumen(rutas, filtro));
+        }
+        return resultado;
+    }
+
+    /**
+     * caminos
+     * Objetivo: núcleo de Yen sobre índices. A = caminos ya elegidos, candidatos = desvíos pendientes.
+     * Retorno: List<Camino> con hasta k caminos.
+     */
+    List<Camino> caminos(int s, int t, int k) {
+        int n = csr.getNumParadas();
+        ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(() -> new Buffers(n));
+
+        List<Camino> elegidos = new ArrayList<>();
+        Camino primero = desviar(buffers.get(), s, t, null, null, null, 0, elegidos);
+        if (primero == null) return elegidos;
+        elegidos.add(primero);
+
+        PriorityQueue<Camino> candidatos = new PriorityQueue<>(ORDEN);
+        Set<Camino> vistos = new HashSet<>();
+        vistos.add(primero);
+        int[] origenes = csr.getOrigen();
+
+        while (elegidos.size() < k) {
+            Camino anterior = elegidos.get(elegidos.size() - 1);
+            int largo = anterior.rutas.length;
+
+            // Paradas del camino anterior y peso acumulado hasta cada una
+            int[] paradas = new int[largo + 1];
+            double[] acumulado = new double[largo + 1];
+            for (int i = 0; i < largo; i++) {
+                int e = anterior.rutas[i];
+                paradas[i] = origenes[e];
+                acumulado[i + 1] = acumulado[i] + pesos[e];
+            }
+            paradas[largo] = t;
+
+            // Un desvío por parada del camino (desde donde se separó de su padre); "elegidos" no cambia durante la ronda
+            List<Camino> nuevos = IntStream.range(anterior.desvio, largo).parallel()
+                    .mapToObj(i -> desviar(buffers.get(), paradas[i], t, anterior, paradas, acumulado, i, elegidos))
+                    .filter(Objects::nonNull)
+                    .toList();
+            for (Camino c : nuevos) {
+                if (vistos.add(c)) candidatos.add(c);
+            }
+            if (candidatos.isEmpty()) break;
+            elegidos.add(candidatos.poll());
+        }
+        return elegidos;
+    }
+
+    /**
+     * desviar
+     * Objetivo: mantener la raíz del camino anterior hasta la posición i y buscar otro tramo desde paradas[i],
+     *           sin las rutas que ya usaron los caminos elegidos con esa misma raíz ni las paradas de la raíz.
+     *           Con anterior == null es la búsqueda del primer camino (sin raíz ni prohibiciones).
+     * Retorno: Camino completo (raíz + tramo nuevo) o null si no hay.
+     */
+    private Camino desviar(Buffers b, int desde, int t, Camino anterior, int[] paradas, double[] acumulado,
+                           int i, List<Camino> elegidos) {
+        if (anterior != null) {
+            for (Camino c : elegidos) {
+                if (c.rutas.length > i && Arrays.equals(c.rutas, 0, i, anterior.rutas, 0, i)) {
+                    b.rutasProhibidas.set(c.rutas[i]);
+                }
+            }
+            for (int j = 0; j < i; j++) b.paradasProhibidas.set(paradas[j]);
+        }
+
+        int[] tramo = buscar(b, desde, t);
+
+        b.rutasProhibidas.clear();
+        b.paradasProhibidas.clear();
+        if (tramo == null) return null;
+
+        int[] rutas = new int[i + tramo.length];
+        double peso = 0;
+        if (anterior != null) {
+            System.arraycopy(anterior.rutas, 0, rutas, 0, i);
+            peso = acumulado[i];
+        }
+        System.arraycopy(tramo, 0, rutas, i, tramo.length);
+        for (int e : tramo) peso += pesos[e];
+        return new Camino(rutas, peso, i);
+    }
+
+    /**
+     * buscar
+     * Objetivo: A* (o Dijkstra si no hay landmarks) de "desde" a t saltando rutas cerradas, rutas prohibidas
+     *           y paradas prohibidas. La cota de landmarks sigue valiendo: prohibir rutas solo alarga caminos.
+     * Retorno: int[] con los índices de ruta del tramo, o null si no hay camino.
+     */
+    private int[] buscar(Buffers b, int desde, int t) {
+        int[] offset = csr.getOffset();
+        int[] destinos = csr.getDestino();
+        b.nuevaBusqueda();
+
+        if (heuristica(b, desde, t) == INFINITO) return null;
+        b.g[desde] = 0;
+        b.rutaPrev[desde] = -1;
+        b.marca[desde] = b.generacion;
+        b.cola.insertarOActualizar(desde, b.h[desde]);
+
+        boolean llego = false;
+        while (!b.cola.isEmpty()) {
+            int u = b.cola.extraerMin();
+            if (u == t) { llego = true; break; }
+
+            double gu = b.g[u];
+            for (int e = offset[u]; e < offset[u + 1]; e++) {
+                if (cerradas.get(e) || b.rutasProhibidas.get(e)) continue;
+                int v = destinos[e];
+                if (b.paradasProhibidas.get(v)) continue;
+                double ng = gu + pesos[e];
+                if (ng < b.g(v)) {
+                    double hv = heuristica(b, v, t);
+                    if (hv == INFINITO) continue; // Desde v no se llega al destino
+                    b.g[v] = ng;
+                    b.rutaPrev[v] = e;
+                    b.marca[v] = b.generacion;
+                    b.cola.insertarOActualizar(v, ng + hv);
+                }
+            }
+        }
+        if (!llego) return null;
+
+        int largo = 0;
+        int[] origenes = csr.getOrigen();
+        for (int v = t; v != desde; v = origenes[b.rutaPrev[v]]) largo++;
+        int[] tramo = new int[largo];
+        for (int v = t; v != desde; v = origenes[b.rutaPrev[v]]) tramo[--largo] = b.rutaPrev[v];
+        return tramo;
+    }
+
+    private double heuristica(Buffers b, int v, int t) {
+        if (landmarks == null) return 0;
+        double h = b.h[v];
+        if (Double.isNaN(h)) b.h[v] = h = landmarks.cotaInferior(v, t);
+        return h;
+    }
+}
@@ -45,11 +45,11 @@ public class Kruskal {
      * - Guardamos cuál Ruta original representa este par y su peso según el filtro.
      */
     private static class Arista {
-        final Parada u, v;   // Extremos del par (no dirigido)
+        final int u, v;      // Extremos del par (no dirigido), como índices en GrafoCSR
         final Ruta ruta;     // Ruta original que elegimos para {u,v} (la de menor peso)
         final double peso;   // Peso de esta conexión para comparar en Kruskal
 
-        Arista(Parada u, Parada v, Ruta ruta, double peso) {
+        Arista(int u, int v, Ruta ruta, double peso) {
             this.u = u;
             this.v = v;
             this.ruta = ruta;
@@ -67,47 +67,42 @@ public class Kruskal {
      * - unir(a,b) = une los conjuntos de a y b (usamos rango para balancear).
      */
     private static class UF {
-        private final Map<Parada, Parada> padre = new HashMap<>(); // Mapa de padre por nodo
-        private final Map<Parada, Integer> rango = new HashMap<>(); // Altura aproximada para balanceo
+        private final int[] padre; // Padre por nodo (índice de parada)
+        private final int[] rango; // Altura aproximada para balanceo
 
-        UF(Collection<Parada> nodos) {
+        UF(int n) {
             // Inicialmente, cada parada es su propio padre
-            for (Parada p : nodos) {
-                padre.put(p, p);
-                rango.put(p, 0);
-            }
+            padre = new int[n];
+            rango = new int[n];
+            for (int i = 0; i < n; i++) padre[i] = i;
         }
 
         // apuntamos cada nodo directamente a la raíz para acelerar futuras búsquedas.
-        Parada buscar(Parada x) {
-            Parada p = padre.get(x);
-            if (p == null) return null;
-            if (!p.equals(x)) {              // Si x no es raíz, subimos recursivamente hasta la raíz
-                Parada raiz = buscar(p);
-                padre.put(x, raiz);
-                return raiz;
+        int buscar(int x) {
+            int raiz = x;
+            while (padre[raiz] != raiz) raiz = padre[raiz]; // Subimos hasta la raíz
+            while (padre[x] != raiz) {                       // Compresión de caminos
+                int sig = padre[x];
+                padre[x] = raiz;
+                x = sig;
             }
-            return p;                         // x es raíz
+            return raiz;
         }
 
         // Unir dos conjuntos. Devuelve true si se unieron, es decir, no había ciclo; false si ya estaban unidos.
-        boolean unir(Parada a, Parada b) {
-            Parada ra = buscar(a), rb = buscar(b);
-            if (ra == null || rb == null) return false; // validación
-            if (ra.equals(rb)) return false;            // Ya están en el mismo conjunto por lo que unirlos haría ciclo
-
-            int rra = rango.getOrDefault(ra, 0);
-            int rrb = rango.getOrDefault(rb, 0);
+        boolean unir(int a, int b) {
+            int ra = buscar(a), rb = buscar(b);
+            if (ra == rb) return false;            // Ya están en el mismo conjunto por lo que unirlos haría ciclo
 
             // Unión por rango: colgamos la raíz más pequeña debajo de la más grande
-            if (rra < rrb) {
-                padre.put(ra, rb);
-            } else if (rra > rrb) {
-                padre.put(rb, ra);
+            if (rango[ra] < rango[rb]) {
+                padre[ra] = rb;
+            } else if (rango[ra] > rango[rb]) {
+                padre[rb] = ra;
             } else {
                 // Si empatan, elegimos una como raíz y aumentamos su rango
-                padre.put(rb, ra);
-                rango.put(ra, rra + 1);
+                padre[rb] = ra;
+                rango[ra]++;
             }
             return true; // Se unieron sin formar ciclo
         }
@@ -127,33 +122,31 @@ public class Kruskal {
         if (grafo == null) throw new IllegalArgumentException("grafo no puede ser null");
         if (filtro == null || filtro.isBlank()) throw new IllegalArgumentException("filtro inválido");
 
-        // Traemos todas las paradas
-        List<Parada> paradas = grafo.getParadasList();
+        // Traemos la vista compacta del grafo (paradas numeradas 0..n-1)
+        GrafoCSR csr = grafo.getCSR();
+        int n = csr.getNumParadas();
         // Casos borde: 0 o 1 parada => no hay aristas que agregar
-        if (paradas.isEmpty()) return new Resultado(Collections.emptyList(), 0.0);
-        if (paradas.size() == 1) return new Resultado(Collections.emptyList(), 0.0);
+        if (n == 0) return new Resultado(Collections.emptyList(), 0.0);
+        if (n == 1) return new Resultado(Collections.emptyList(), 0.0);
 
         //Se construyen aristas no dirigidas con el menor peso por par {u,v}
 
-        Map<String, Arista> mapaAristas = new HashMap<>();
+        Map<Long, Arista> mapaAristas = new HashMap<>();
+        double[] pesos = csr.pesosActuales(filtro); // Peso según el filtro
+        int[] desde = csr.getOrigen();
+        int[] hacia = csr.getDestino();
 
-        for (Parada p : paradas) {
-            List<Ruta> sal = grafo.getRutasDeSalida(p);
-            if (sal == null) continue; // Si no salen rutas de p, seguimos
+        for (int e = 0; e < csr.getNumRutas(); e++) {
+            int a = desde[e];                     // Extremo A
+            int b = hacia[e];                     // Extremo B
 
-            for (Ruta r : sal) {
-                Parada a = r.getInicio();             // Extremo A
-                Parada b = r.getDestino();            // Extremo B
-                if (a == null || b == null) continue; // validación
+            long key = clavePareja(a, b, n);      // Clave ordenada para {a,b}
+            double w = pesos[e];
 
-                String key = clavePareja(a, b);       // Clave ordenada para {a,b}
-                double w = pesoPorFiltro(r, filtro);  // Peso según el filtro
-
-                // Si no hay arista guardada aún para este par, o encontramos una más barata, la reemplazamos
-                Arista vieja = mapaAristas.get(key);
-                if (vieja == null || w < vieja.peso) {
-                    mapaAristas.put(key, new Arista(a, b, r, w));
-                }
+            // Si no hay arista guardada aún para este par, o encontramos una más barata, la reemplazamos
+            Arista vieja = mapaAristas.get(key);
+            if (vieja == null || w < vieja.peso) {
+                mapaAristas.put(key, new Arista(a, b, csr.getRuta(e), w));
             }
         }
 
@@ -162,7 +155,7 @@ public class Kruskal {
         aristas.sort(Comparator.comparingDouble(e -> e.peso));
 
         // Preparamos Union-Find y estructuras para construir el MST
-        UF uf = new UF(paradas);        // Cada parada empieza en su propio conjunto
+        UF uf = new UF(n);              // Cada parada empieza en su propio conjunto
         List<Ruta> arbol = new ArrayList<>(); // Rutas que irán al MST
         double total = 0.0;             // Acumulador del peso total
 
@@ -174,15 +167,15 @@ public class Kruskal {
                 total += e.peso;    // Sumamos su peso
 
                 // Si ya alcanzamos N-1 aristas, el MST está completo y podemos cortar temprano
-                if (arbol.size() == paradas.size() - 1) break;
+                if (arbol.size() == n - 1) break;
             }
             // Si unir() devuelve false, era un ciclo: la saltamos y seguimos
         }
 
         // Verificar que todo quedó conectado, es decir, todas las paradas pertenecen al mismo conjunto
-        Parada rep = uf.buscar(paradas.get(0)); // Representante de la primera parada
-        for (Parada p : paradas) {
-            if (!Objects.equals(uf.buscar(p), rep)) {
+        int rep = uf.buscar(0); // Representante de la primera parada
+        for (int i = 1; i < n; i++) {
+            if (uf.buscar(i) != rep) {
                 // Si encontramos alguna en un conjunto distinto, no hay MST que cubra todo
                 return null;
             }
@@ -194,28 +187,10 @@ public class Kruskal {
 
     /**
      * clavePareja
-     * Objetivo: generar una clave ordenada para el par (a,b), de modo que
+     * Objetivo: generar una clave ordenada para el par de índices (a,b), de modo que
      * clavePareja(a,b) == clavePareja(b,a). Así agrupamos correctamente las dos direcciones.
      */
-    private String clavePareja(Parada a, Parada b) {
-        int ha = a.hashCode();
-        int hb = b.hashCode();
-        return ha <= hb ? ha + "<>" + hb : hb + "<>" + ha;
-    }
-
-    /**
-     * pesoPorFiltro
-     * Objetivo: devolver el valor de la ruta que corresponde al filtro elegido.
-     * - "distancia" -> getDistancia()
-     * - "tiempo"    -> getTiempo()
-     * - "costo"     -> getCosto()
-     */
-    private double pesoPorFiltro(Ruta r, String filtro) {
-        return switch (filtro.toLowerCase(Locale.ROOT)) {
-            case "distancia" -> r.getDistancia();
-            case "tiempo"    -> r.getTiempo();
-            case "costo"     -> r.getCosto();
-            default -> throw new IllegalArgumentException("Filtro inválido: " + filtro);
-        };
+    private long clavePareja(int a, int b, int n) {
+        return a <= b ? (long) a * n + b : (long) b * n + a;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Nombre de la clase: Landmarks
+ *
+ * Objetivo:
+ * - Precalcular, para un filtro, las distancias desde y hacia un grupo pequeño de paradas "landmark".
+ * - Con esas distancias y la desigualdad triangular sacamos una cota inferior de d(v, destino)
+ *   que sirve como heurística admisible para A* (nuestras paradas no tienen coordenadas,
+ *   así que esta es la única heurística que podemos usar).
+ *
+ * Nota:
+ * - Se calcula con los pesos base y una vez por versión del grafo (ver Grafo.getLandmarks).
+ *   Como los eventos simulados solo suben tiempo/costo o cierran rutas, la cota sigue siendo válida.
+ */
+public class Landmarks {
+
+    public static final int CANTIDAD_POR_DEFECTO = 8;
+
+    private final long version;
+    private final String filtro;
+    private final int[] landmarks;
+    private final double[][] desde; // desde[l][v] = d(landmark l, v)
+    private final double[][] hacia; // hacia[l][v] = d(v, landmark l)
+
+    /**
+     * Landmarks
+     * Objetivo: elegir los landmarks y correr un Dijkstra hacia adelante y otro hacia atrás por cada uno.
+     *           La elección es "el más lejano": cada landmark nuevo es la parada más alejada
+     *           de los que ya tenemos, para que cubran bien los bordes de la red.
+     * Retorno: ninguno.
+     */
+    Landmarks(GrafoCSR csr, String filtro, int cantidad) {
+        this.version = csr.getVersion();
+        this.filtro = filtro;
+
+        int n = csr.getNumParadas();
+        int k = Math.min(cantidad, n);
+        double[] pesos = csr.pesos(filtro);
+
+        landmarks = new int[k];
+        desde = new double[k][n];
+        hacia = new double[k][n];
+
+        // minimo[v] = distancia de v al landmark más cercano ya elegido (en sentido de salida)
+        double[] minimo = new double[n];
+        Arrays.fill(minimo, Double.POSITIVE_INFINITY);
+
+        int candidato = 0;
+        for (int l = 0; l < k; l++) {
+            landmarks[l] = candidato;
+            Dijkstra.arbolCompleto(csr, pesos, candidato, false, desde[l], null);
+            Dijkstra.arbolCompleto(csr, pesos, candidato, true, hacia[l], null);
+
+            // Siguiente landmark: la parada más lejana de todos los elegidos.
+            // Las inalcanzables (infinito) ganan, así cubrimos también otras componentes.
+            int mejor = -1;
+            double mejorValor = -1;
+            for (int v = 0; v < n; v++) {
+                minimo[v] = Math.min(minimo[v], desde[l][v]);
+                if (minimo[v] > mejorValor && !esLandmark(v, l + 1)) {
+                    mejorValor = minimo[v];
+                    mejor = v;
+                }
+            }
+            if (mejor < 0) break;
+            candidato = mejor;
+        }
+    }
+
+    /**
+     * Landmarks
+     * Objetivo: rearmar landmarks ya calculados (leídos de una Instantanea) para la vista dada.
+     * Retorno: ninguno.
+     */
+    Landmarks(GrafoCSR csr, String filtro, int[] landmarks, double[][] desde, double[][] hacia) {
+        this.version = csr.getVersion();
+        this.filtro = filtro;
+        this.landmarks = landmarks;
+        this.desde = desde;
+        this.hacia = hacia;
+    }
+
+    private boolean esLandmark(int v, int elegidos) {
+        for (int i = 0; i < elegidos; i++) if (landmarks[i] == v) return true;
+        return false;
+    }
+
+    public long getVersion() { return version; }
+
+    public String getFiltro() { return filtro; }
+
+    public int getCantidad() { return landmarks.length; }
+
+    int[] getIndices() { return landmarks; }
+
+    double[][] getDesde() { return desde; }
+
+    double[][] getHacia() { return hacia; }
+
+    /**
+     * cotaInferior
+     * Objetivo: estimar sin pasarse cuánto falta de v a t usando cada landmark L:
+     *           d(v,t) >= d(v,L) - d(t,L)   y   d(v,t) >= d(L,t) - d(L,v).
+     *           Si un landmark demuestra que v no puede llegar a t, devolvemos infinito.
+     * Retorno: double con la mejor cota.
+     */
+    public double cotaInferior(int v, int t) {
+        double cota = 0;
+        for (int l = 0; l < landmarks.length; l++) {
+            double vl = hacia[l][v], tl = hacia[l][t];
+            if (tl != Double.POSITIVE_INFINITY) {
+                double c = vl - tl; // si v no llega a L pero t sí, v tampoco llega a t
+                if (c > cota) cota = c;
+            }
+            double lt = desde[l][t], lv = desde[l][v];
+            if (lv != Double.POSITIVE_INFINITY) {
+                double c = lt - lv; // si L llega a v pero no a t, v no llega a t
+                if (c > cota) cota = c;
+            }
+        }
+        return cota;
+    }
+}
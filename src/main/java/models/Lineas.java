@@ -0,0 +1,113 @@
+package models;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Nombre de la clase: Lineas
+ *
+ * Objetivo:
+ * - Registro de líneas (tipos de transporte) con un id entero por cada texto normalizado.
+ *   "Autobús", "autobus" y " AUTOBUS " terminan en el mismo id.
+ * - La normalización (sin acentos, minúsculas) se hace una sola vez, cuando se crea o edita
+ *   una parada o una ruta; los algoritmos solo comparan enteros.
+ *
+ * Nota:
+ * - La línea de una ruta es la de su parada de inicio; si esa parada no tiene tipo, la del destino;
+ *   y si tampoco, la del nombre de la ruta (ver Ruta.getLinea).
+ */
+public final class Lineas {
+
+    public static final int SIN_LINEA = -1; // Parada sin tipo
+
+    private static final Map<String, Integer> ids = new HashMap<>();
+    private static final List<String> nombres = new ArrayList<>();
+
+    // Cuántas veces una parada cambió de línea (editar el tipo no cambia la versión del grafo)
+    private static volatile long cambios;
+
+    private Lineas() {}
+
+    /**
+     * idDe
+     * Objetivo: normalizar el texto y devolver su id, registrándolo si es nuevo.
+     *           Si queda vacío usamos "-" como línea por defecto.
+     * Retorno: int (id de la línea).
+     */
+    public static synchronized int idDe(String texto) {
+        String s = texto == null ? "" : Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{InCombiningDiacriticalMarks}+", "")
+                .toLowerCase(Locale.ROOT)
+                .trim();
+        if (s.isBlank()) s = "-";
+
+        Integer id = ids.get(s);
+        if (id == null) {
+            id = nombres.size();
+            ids.put(s, id);
+            nombres.add(s);
+        }
+        return id;
+    }
+
+    /**
+     * idDeTipo
+     * Objetivo: id de línea del tipo de una parada, o SIN_LINEA si el tipo está vacío.
+     * Retorno: int.
+     */
+    public static int idDeTipo(String tipo) {
+        return (tipo == null || tipo.isBlank()) ? SIN_LINEA : idDe(tipo);
+    }
+
+    /**
+     * nombreDe
+     * Objetivo: texto normalizado de un id (útil para mostrar o depurar).
+     * Retorno: String o null si el id no existe.
+     */
+    public static synchronized String nombreDe(int id) {
+        return (id >= 0 && id < nombres.size()) ? nombres.get(id) : null;
+    }
+
+    /**
+     * cantidad
+     * Objetivo: cuántas líneas hay registradas (los ids van de 0 a cantidad-1).
+     * Retorno: int.
+     */
+    static synchronized int cantidad() {
+        return nombres.size();
+    }
+
+    /**
+     * registrarCambio
+     * Objetivo: avisar que una parada cambió de línea, para que los resultados guardados
+     *           (que traen transbordos contados con la línea vieja) se descarten.
+     * Retorno: ninguno.
+     */
+    static synchronized void registrarCambio() {
+        cambios++;
+    }
+
+    public static long getCambios() {
+        return cambios;
+    }
+
+    /**
+     * contarTransbordos
+     * Objetivo: contar cuántas veces cambiamos de línea a lo largo del camino, comparando
+     *           la línea de cada tramo con la del tramo anterior. Lo usan todos los algoritmos.
+     * Retorno: int con la cantidad de transbordos.
+     */
+    public static int contarTransbordos(List<Ruta> path) {
+        // Camino vacío o nulo no tiene cambios
+        if (path == null || path.isEmpty()) return 0;
+
+        int prev = SIN_LINEA;
+        int trans = 0;
+        for (Ruta r : path) {
+            int lin = r.getLinea();
+            if (prev != SIN_LINEA && prev != lin) trans++;
+            prev = lin;
+        }
+        return trans;
+    }
+}
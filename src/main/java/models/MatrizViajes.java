@@ -0,0 +1,193 @@
+package models;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Nombre de la clase: MatrizViajes
+ *
+ * Objetivo:
+ * - Matriz origen-destino (por ejemplo 500 x 500 paradas) del peso mínimo según el filtro,
+ *   para planificar flotas sin llamar a obtenerMejorRuta par por par.
+ * - Corre una sola búsqueda por origen (no una por par) y reparte los orígenes entre los núcleos.
+ *   Todas las búsquedas usan el mismo escenario, que se arma una vez.
+ * - Los valores se guardan en un arreglo plano de doubles (fila = origen, columna = destino);
+ *   el camino de una celda se arma solo cuando se pide.
+ *
+ * Nota:
+ * - Con "transbordos" el valor es la cantidad de transbordos del camino con menos cambios de línea,
+ *   y se resuelve con la búsqueda por cubetas de MinTransbordos (también una por origen).
+ * - Si se pidió guardarCaminos, por cada origen queda la ruta previa de cada parada (n enteros por origen);
+ *   si no, camino(i, j) vuelve a correr la búsqueda de ese par.
+ */
+public class MatrizViajes {
+
+    public static final double INFINITO = Double.POSITIVE_INFINITY;
+
+    private final Escenario escenario;
+    private final GrafoCSR csr;
+    private final String filtro;
+    private final Parada[] origenes;
+    private final Parada[] destinos;
+    private final int[] indiceOrigen;   // índice CSR de cada origen
+    private final int[] indiceDestino;  // índice CSR de cada destino
+    private final double[] valores;     // valores[i * destinos + j]
+    private final int[][] rutaPrev;     // árbol de cada origen (null si no se guardaron caminos)
+    private final MinTransbordos transbordos; // motor para el filtro "transbordos" (null con los demás)
+
+    /**
+     * MatrizViajes
+     * Objetivo: validar las paradas, pasarlas a índices de la vista CSR y llenar la matriz en paralelo.
+     * Retorno: ninguno.
+     */
+    MatrizViajes(Escenario escenario, List<Parada> origenes, List<Parada> destinos, String filtro, boolean guardarCaminos,
+                 MinTransbordos transbordos) {
+        if (escenario == null || origenes == null || destinos == null || filtro == null || filtro.isBlank()) {
+            throw new IllegalArgumentException("escenario/origenes/destinos/filtro no pueden ser null");
+        }
+        this.escenario = escenario;
+        this.csr = escenario.getCSR();
+        this.filtro = filtro.toLowerCase(Locale.ROOT);
+        if (!List.of("distancia", "tiempo", "costo", "transbordos").contains(this.filtro)) {
+            throw new IllegalArgumentException("Filtro desconocido: " + filtro);
+        }
+        this.origenes = origenes.toArray(new Parada[0]);
+        this.destinos = destinos.toArray(new Parada[0]);
+        this.indiceOrigen = indices(this.origenes);
+        this.indiceDestino = indices(this.destinos);
+
+        int filas = this.origenes.length;
+        int columnas = this.destinos.length;
+        this.valores = new double[filas * columnas];
+        boolean guardar = guardarCaminos && !this.filtro.equals("transbordos");
+        this.rutaPrev = guardar ? new int[filas][] : null;
+        this.transbordos = this.filtro.equals("transbordos") ? transbordos : null;
+        if (this.filtro.equals("transbordos") && (transbordos == null || transbordos.getVersion() != csr.getVersion())) {
+            throw new IllegalArgumentException("Los estados de transbordos no corresponden a la versión del escenario");
+        }
+
+        if (this.filtro.equals("transbordos")) {
+            llenarTransbordos();
+        } else {
+            llenarArboles();
+        }
+    }
+
+    private int[] indices(Parada[] paradas) {
+        int[] idx = new int[paradas.length];
+        for (int i = 0; i < paradas.length; i++) {
+            idx[i] = paradas[i] == null ? -1 : csr.indiceDe(paradas[i]);
+            if (idx[i] < 0) throw new IllegalArgumentException("La parada " + paradas[i] + " no está en el grafo");
+        }
+        return idx;
+    }
+
+    /**
+     * llenarArboles
+     * Objetivo: un Dijkstra por origen, en paralelo, que para apenas asentó todos los destinos de la matriz.
+     *           Los orígenes se reparten en tramos y cada tramo pide sus propios buffers, que se sueltan al terminar.
+     * Retorno: ninguno.
+     */
+    private void llenarArboles() {
+        int n = csr.getNumParadas();
+        int filas = origenes.length;
+        int columnas = destinos.length;
+        double[] pesos = escenario.pesos(filtro);
+        BitSet cerradas = escenario.cerradas();
+        BitSet objetivos = new BitSet(n);
+        for (int t : indiceDestino) objetivos.set(t);
+
+        int tramos = Math.min(filas, 4 * ForkJoinPool.getCommonPoolParallelism());
+        IntStream.range(0, tramos).parallel().forEach(tramo -> {
+            int desde = (int) ((long) filas * tramo / tramos);
+            int hasta = (int) ((long) filas * (tramo + 1) / tramos);
+            Dijkstra.Buffers b = new Dijkstra.Buffers(n);
+            for (int i = desde; i < hasta; i++) {
+                Dijkstra.arbolHasta(csr, pesos, cerradas::get, indiceOrigen[i], objetivos, b);
+                for (int j = 0; j < columnas; j++) {
+                    valores[i * columnas + j] = b.dist[indiceDestino[j]];
+                }
+                if (rutaPrev != null) rutaPrev[i] = b.rutaPrev.clone();
+            }
+        });
+    }
+
+    /**
+     * llenarTransbordos
+     * Objetivo: menos transbordos de cada par: una búsqueda por cubetas por origen que para cuando
+     *           asentó todos los destinos, repartiendo los orígenes entre los núcleos.
+     * Retorno: ninguno.
+     */
+    private void llenarTransbordos() {
+        int columnas = destinos.length;
+        BitSet cerradas = escenario.cerradas();
+        BitSet objetivos = new BitSet(csr.getNumParadas());
+        for (int t : indiceDestino) objetivos.set(t);
+        IntStream.range(0, origenes.length).parallel().forEach(i -> {
+            int s = indiceOrigen[i];
+            MinTransbordos.Busqueda b = transbordos.explorar(s, objetivos, cerradas);
+            for (int j = 0; j < columnas; j++) {
+                int t = indiceDestino[j];
+                int trans = t == s ? 0 : b.transbordos(t);
+                valores[i * columnas + j] = trans < 0 ? INFINITO : trans;
+            }
+        });
+    }
+
+    public Escenario getEscenario() { return escenario; }
+
+    public String getFiltro() { return filtro; }
+
+    public int getNumOrigenes() { return origenes.length; }
+
+    public int getNumDestinos() { return destinos.length; }
+
+    public Parada getOrigen(int i) { return origenes[i]; }
+
+    public Parada getDestino(int j) { return destinos[j]; }
+
+    /**
+     * valor
+     * Objetivo: peso mínimo del origen i al destino j (infinito si no hay camino).
+     * Retorno: double.
+     */
+    public double valor(int i, int j) {
+        return valores[i * destinos.length + j];
+    }
+
+    /**
+     * getValores
+     * Objetivo: la matriz completa como arreglo plano (fila = origen). No modificar.
+     * Retorno: double[] de tamaño origenes x destinos.
+     */
+    public double[] getValores() {
+        return valores;
+    }
+
+    /**
+     * camino
+     * Objetivo: rutas del origen i al destino j. Usa el árbol guardado del origen si lo hay;
+     *           si no, vuelve a buscar solo ese par con el mismo escenario.
+     * Retorno: List<Ruta> (vacía si origen == destino) o null si no hay camino.
+     */
+    public List<Ruta> camino(int i, int j) {
+        if (valor(i, j) == INFINITO) return null;
+        int s = indiceOrigen[i], t = indiceDestino[j];
+        if (s == t) return new ArrayList<>();
+        if (rutaPrev != null) return Dijkstra.reconstruirCamino(csr, rutaPrev[i], s, t);
+        if (filtro.equals("transbordos")) return transbordos.buscar(s, t, escenario.cerradas());
+        return Dijkstra.buscar(csr, escenario.pesos(filtro), escenario.cerradas(), s, t);
+    }
+
+    /**
+     * resumen
+     * Objetivo: la celda (i, j) en el formato de siempre, con los totales del escenario.
+     * Retorno: RutaMasCorta o null si no hay camino (o si origen == destino).
+     */
+    public RutaMasCorta resumen(int i, int j) {
+        List<Ruta> camino = camino(i, j);
+        if (camino == null || camino.isEmpty()) return null;
+        return escenario.resumen(camino, filtro);
+    }
+}
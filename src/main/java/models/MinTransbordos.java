@@ -0,0 +1,267 @@
+package models;
+
+import java.util.*;
+
+/**
+ * Nombre de la clase: MinTransbordos
+ *
+ * Objetivo:
+ * - Resolver el filtro "transbordos": el camino con menos cambios de línea y, entre esos, el más corto en distancia.
+ * - Trabaja sobre un grafo de estados (parada, línea con la que llegamos) armado con índices enteros
+ *   una sola vez por versión del grafo: cada ruta e sabe a qué estado lleva (estadoDestino[e]).
+ *
+ * Nota:
+ * - El costo es lexicográfico de verdad (transbordos, distancia): procesamos los estados por "cubetas"
+ *   de transbordos (0, 1, 2, ...) y dentro de cada cubeta corremos Dijkstra por distancia.
+ *   Como cada paso suma 0 o 1 transbordo, es la misma idea de un BFS 0-1 pero con desempate por distancia.
+ * - La línea de una ruta es el tipo de su parada de inicio (si no hay, el del destino; si tampoco, el nombre de la ruta),
+ *   como id entero ya precalculado (ver Lineas y Ruta.getLinea).
+ */
+public class MinTransbordos {
+
+    public static final double INFINITO = Double.POSITIVE_INFINITY;
+
+    private final long version;
+    private final GrafoCSR csr;
+    private final long cambiosLineas;    // Lineas.getCambios() al armar los estados (para detectar cambios de tipo)
+
+    private final int[] lineaRuta;       // línea de cada ruta (id entero)
+    private final int[] offsetEstados;   // estados de la parada v: offsetEstados[v] .. offsetEstados[v + 1] - 1
+    private final int[] lineaEstado;     // línea con la que se llega en cada estado
+    private final int[] paradaEstado;    // parada de cada estado
+    private final int[] estadoDestino;   // estado al que lleva cada ruta
+
+    /**
+     * MinTransbordos
+     * Objetivo: tomar la línea de cada ruta y armar los estados (parada, línea de llegada).
+     *           Una parada tiene un estado por cada línea distinta de las rutas que llegan a ella.
+     * Retorno: ninguno.
+     */
+    MinTransbordos(GrafoCSR csr) {
+        this.version = csr.getVersion();
+        this.csr = csr;
+        // Se lee antes que las líneas: si una parada cambia mientras armamos, el contador ya no coincide
+        this.cambiosLineas = Lineas.getCambios();
+
+        int n = csr.getNumParadas();
+        int m = csr.getNumRutas();
+
+        // Líneas ya precalculadas como enteros en cada ruta (ver Lineas)
+        lineaRuta = new int[m];
+        for (int e = 0; e < m; e++) {
+            lineaRuta[e] = csr.getRuta(e).getLinea();
+        }
+
+        // Estados por parada: líneas distintas de las rutas de entrada, ordenadas
+        int[] offsetEntrada = csr.getOffsetEntrada();
+        int[] rutasEntrada = csr.getRutasEntrada();
+        offsetEstados = new int[n + 1];
+        int[] lineas = new int[m];
+        int total = 0;
+        for (int v = 0; v < n; v++) {
+            offsetEstados[v] = total;
+            int desde = total;
+            for (int k = offsetEntrada[v]; k < offsetEntrada[v + 1]; k++) {
+                lineas[total++] = lineaRuta[rutasEntrada[k]];
+            }
+            Arrays.sort(lineas, desde, total);
+            int unicos = desde;
+            for (int i = desde; i < total; i++) {
+                if (i == desde || lineas[i] != lineas[i - 1]) lineas[unicos++] = lineas[i];
+            }
+            total = unicos;
+        }
+        offsetEstados[n] = total;
+
+        lineaEstado = Arrays.copyOf(lineas, total);
+        paradaEstado = new int[total];
+        for (int v = 0; v < n; v++) {
+            for (int x = offsetEstados[v]; x < offsetEstados[v + 1]; x++) paradaEstado[x] = v;
+        }
+
+        int[] destinos = csr.getDestino();
+        estadoDestino = new int[m];
+        for (int e = 0; e < m; e++) {
+            int v = destinos[e];
+            estadoDestino[e] = Arrays.binarySearch(lineaEstado, offsetEstados[v], offsetEstados[v + 1], lineaRuta[e]);
+        }
+    }
+
+    public long getVersion() { return version; }
+
+    public int getNumEstados() { return lineaEstado.length; }
+
+    /**
+     * esVigente
+     * Objetivo: confirmar que los estados siguen sirviendo: misma versión del grafo y ninguna parada cambió de tipo
+     *           (el tipo se puede editar sin tocar la estructura del grafo, pero queda contado en Lineas).
+     * Retorno: boolean.
+     */
+    boolean esVigente(long versionGrafo) {
+        return versionGrafo == version && Lineas.getCambios() == cambiosLineas;
+    }
+
+    /**
+     * rutaMasCorta
+     * Objetivo: calcular el camino con menos transbordos (desempate por distancia) saltando las rutas
+     *           cerradas del escenario; los totales de tiempo y costo salen del escenario.
+     * Retorno: RutaMasCorta o null si no hay camino.
+     */
+    public RutaMasCorta rutaMasCorta(Parada inicio, Parada destino, Escenario escenario) {
+        if (escenario.getVersion() != version) {
+            throw new IllegalArgumentException("El escenario no corresponde a esta versión del grafo");
+        }
+        int s = csr.indiceDe(inicio);
+        int t = csr.indiceDe(destino);
+        if (s < 0 || t < 0) return null;
+
+        List<Ruta> camino = buscar(s, t, escenario.cerradas());
+        if (camino == null || camino.isEmpty()) return null;
+
+        return escenario.resumen(camino, "transbordos");
+    }
+
+    /**
+     * buscar
+     * Objetivo: camino con menos transbordos (y luego menos distancia) de s a t.
+     * Retorno: List<Ruta> o null si no hay camino (también si inicio == destino).
+     */
+    List<Ruta> buscar(int s, int t, BitSet cerradas) {
+        if (s == t) return null;
+        BitSet objetivo = new BitSet();
+        objetivo.set(t);
+        Busqueda b = explorar(s, objetivo, cerradas);
+        return b.camino(t);
+    }
+
+    /**
+     * explorar
+     * Objetivo: búsqueda por cubetas de transbordos desde s. La cubeta k se vacía con Dijkstra por distancia;
+     *           los pasos que cambian de línea van a la lista de la cubeta k + 1.
+     *           Los estados se asientan en orden (transbordos, distancia), así que el primer estado que se asienta
+     *           de cada parada es su óptimo. La búsqueda para apenas se asentaron todas las paradas de "objetivos".
+     * Retorno: Busqueda con el estado óptimo de cada parada alcanzada.
+     */
+    Busqueda explorar(int s, BitSet objetivos, BitSet cerradas) {
+        int estados = lineaEstado.length;
+        int[] offset = csr.getOffset();
+        double[] distancias = csr.getDistancia();
+
+        Busqueda b = new Busqueda(estados, csr.getNumParadas());
+        int[] trans = b.trans;
+        double[] dist = b.dist;
+        int[] rutaPrev = b.rutaPrev;
+        int[] estadoPrev = b.estadoPrev;
+        BitSet asentados = new BitSet(estados);
+        int pendientes = objetivos.cardinality() - (objetivos.get(s) ? 1 : 0);
+
+        HeapIndexado cubeta = new HeapIndexado(estados); // cubeta actual, ordenada por distancia
+        int[] siguiente = new int[16];                   // estados que esperan en la cubeta k + 1
+        int enSiguiente = 0;
+
+        // Desde el inicio todavía no vamos en ninguna línea: la primera ruta no cuenta como transbordo
+        for (int e = offset[s]; e < offset[s + 1]; e++) {
+            if (cerradas != null && cerradas.get(e)) continue;
+            int y = estadoDestino[e];
+            if (distancias[e] < dist[y]) {
+                trans[y] = 0;
+                dist[y] = distancias[e];
+                rutaPrev[y] = e;
+                estadoPrev[y] = -1;
+                cubeta.insertarOActualizar(y, dist[y]);
+            }
+        }
+
+        int nivel = 0;
+        while (pendientes > 0) {
+            while (!cubeta.isEmpty()) {
+                int x = cubeta.extraerMin();
+                asentados.set(x);
+                int u = paradaEstado[x];
+                if (u != s && b.mejorEstado[u] < 0) {
+                    b.mejorEstado[u] = x;
+                    if (objetivos.get(u) && --pendientes == 0) break;
+                }
+
+                for (int e = offset[u]; e < offset[u + 1]; e++) {
+                    if (cerradas != null && cerradas.get(e)) continue;
+                    int y = estadoDestino[e];
+                    if (asentados.get(y)) continue;
+                    int nt = nivel + (lineaRuta[e] == lineaEstado[x] ? 0 : 1);
+                    double nd = dist[x] + distancias[e];
+                    if (nt < trans[y] || (nt == trans[y] && nd < dist[y])) {
+                        trans[y] = nt;
+                        dist[y] = nd;
+                        rutaPrev[y] = e;
+                        estadoPrev[y] = x;
+                        if (nt == nivel) {
+                            cubeta.insertarOActualizar(y, nd);
+                        } else {
+                            if (enSiguiente == siguiente.length) siguiente = Arrays.copyOf(siguiente, enSiguiente * 2);
+                            siguiente[enSiguiente++] = y;
+                        }
+                    }
+                }
+            }
+            if (pendientes == 0 || enSiguiente == 0) break;
+
+            // Pasamos a la cubeta siguiente: solo los estados que siguen teniendo ese nivel
+            nivel++;
+            cubeta.limpiar();
+            for (int i = 0; i < enSiguiente; i++) {
+                int y = siguiente[i];
+                if (!asentados.get(y) && trans[y] == nivel) cubeta.insertarOActualizar(y, dist[y]);
+            }
+            enSiguiente = 0;
+        }
+        return b;
+    }
+
+    /**
+     * Clase Busqueda
+     * Propósito: resultado de explorar: etiquetas de cada estado y el estado óptimo de cada parada.
+     */
+    final class Busqueda {
+        final int[] trans;
+        final double[] dist;
+        final int[] rutaPrev;      // ruta con la que llegamos al estado
+        final int[] estadoPrev;    // estado anterior (-1 = salimos directo del inicio)
+        final int[] mejorEstado;   // primer estado asentado de cada parada (-1 = no se asentó)
+
+        Busqueda(int estados, int paradas) {
+            trans = new int[estados];
+            dist = new double[estados];
+            rutaPrev = new int[estados];
+            estadoPrev = new int[estados];
+            mejorEstado = new int[paradas];
+            Arrays.fill(trans, Integer.MAX_VALUE);
+            Arrays.fill(dist, INFINITO);
+            Arrays.fill(mejorEstado, -1);
+        }
+
+        /**
+         * transbordos
+         * Objetivo: transbordos del mejor camino a la parada t.
+         * Retorno: int, o -1 si no se llegó.
+         */
+        int transbordos(int t) {
+            int x = mejorEstado[t];
+            return x < 0 ? -1 : trans[x];
+        }
+
+        /**
+         * camino
+         * Objetivo: rearmar las rutas hasta la parada t siguiendo los estados previos.
+         * Retorno: List<Ruta> o null si no se llegó.
+         */
+        List<Ruta> camino(int t) {
+            int encontrado = mejorEstado[t];
+            if (encontrado < 0) return null;
+            LinkedList<Ruta> camino = new LinkedList<>();
+            for (int x = encontrado; x >= 0; x = estadoPrev[x]) {
+                camino.addFirst(csr.getRuta(rutaPrev[x]));
+            }
+            return camino;
+        }
+    }
+}
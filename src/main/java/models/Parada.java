@@ -5,16 +5,23 @@ import java.util.List;
 
 public class Parada {
 
-    private long id;
+    private volatile long id; // lo asigna el hilo de escritura (DataBase.EscrituraDiferida)
     private String nombre;
     private String tipo;
+    private int linea; // id de línea del tipo, precalculado (ver Lineas)
     private List<Ruta> rutasDeEntrada;
 
     public Parada(String nombre, String tipo) {
+        this(nombre, tipo, Lineas.idDeTipo(tipo));
+    }
+
+    // Con la línea ya calculada (al leer una Instantanea no se vuelve a normalizar el tipo)
+    Parada(String nombre, String tipo, int linea) {
         if(nombre == null || nombre.isBlank()) throw new IllegalArgumentException("Nombre no puede ser null/estar vacio");
         this.nombre = nombre;
         this.rutasDeEntrada = new ArrayList<>();
         this.tipo = tipo;
+        this.linea = linea;
     }
 
     public long getId() {
@@ -30,6 +37,15 @@ public class Parada {
 
     public void setTipo(String tipo) {
         this.tipo = tipo;
+        int nueva = Lineas.idDeTipo(tipo);
+        int anterior = linea;
+        this.linea = nueva;
+        // Avisamos después de guardar la línea: quien vea el contador nuevo ve también la línea nueva
+        if (nueva != anterior) Lineas.registrarCambio();
+    }
+
+    public int getLinea() {
+        return linea;
     }
 
     public String getNombre() { return nombre;}
@@ -45,11 +45,11 @@ public class Prim {
      * Aquí guardamos: los dos extremos (u, v), la Ruta original que representamos y su peso según el filtro.
      */
     private static class Arista {
-        final Parada u, v;   // Extremos de la arista no dirigida
+        final int u, v;      // Extremos de la arista no dirigida (índices en GrafoCSR)
         final Ruta ruta;     // Ruta original del proyecto que elegimos para representar {u,v}
         final double peso;   // Peso (distancia/tiempo/costo) que usaremos en el algoritmo
 
-        Arista(Parada u, Parada v, Ruta ruta, double peso) {
+        Arista(int u, int v, Ruta ruta, double peso) {
             this.u = u;
             this.v = v;
             this.ruta = ruta;
@@ -76,80 +76,81 @@ public class Prim {
             throw new IllegalArgumentException("grafo y filtro no pueden ser null o vacíos");
         }
 
-        // Traemos todas las paradas del grafo
-        List<Parada> paradas = grafo.getParadasList();
+        // Traemos la vista compacta del grafo (paradas numeradas 0..n-1)
+        GrafoCSR csr = grafo.getCSR();
+        int n = csr.getNumParadas();
         // Si no hay paradas, el árbol está vacío y el total 0
-        if (paradas.isEmpty()) return new Resultado(Collections.emptyList(), 0.0);
+        if (n == 0) return new Resultado(Collections.emptyList(), 0.0);
         // Con una sola parada, también es un árbol vacío, es decir, no hay aristas que agregar
-        if (paradas.size() == 1) return new Resultado(Collections.emptyList(), 0.0);
+        if (n == 1) return new Resultado(Collections.emptyList(), 0.0);
 
         // Se Convierte el grafo dirigido en una vista no dirigida,
         // quedándonos con el menor peso entre dos paradas (si existen ambos sentidos).
         // Usamos un mapa clave {u<>v} -> Arista con el menor peso encontrado entre u y v.
-        Map<String, Arista> mapaAristas = new HashMap<>();
-
-        // Recorremos todas las rutas de salida de cada parada
-        for (Parada p : paradas) {
-            List<Ruta> salidas = grafo.getRutasDeSalida(p);
-            if (salidas == null) continue; // Si no hay rutas saliendo de p, seguimos
-
-            for (Ruta r : salidas) {
-                if (!r.isEstado()) continue;      // Si la ruta está cerrada, la ignoramos
-                Parada a = r.getInicio();         // Extremo A (inicio)
-                Parada b = r.getDestino();        // Extremo B (destino)
-                if (a == null || b == null) continue; // Por seguridad
-
-                // Clave ordenada para que {a,b} y {b,a} caigan en la misma entrada
-                String key = clavePareja(a, b);
-
-                // Peso según el filtro elegido (distancia/tiempo/costo)
-                double w = pesoPorFiltro(r, filtro);
-
-                // Si no hay nada guardado aún para este par o encontramos algo más barato, lo reemplazamos
-                Arista vieja = mapaAristas.get(key);
-                if (vieja == null || w < vieja.peso) {
-                    mapaAristas.put(key, new Arista(a, b, r, w));
-                }
+        Map<Long, Arista> mapaAristas = new HashMap<>();
+
+        // Pesos según el filtro elegido (distancia/tiempo/costo), con los eventos del momento
+        double[] pesos = csr.pesosActuales(filtro);
+        int[] desde = csr.getOrigen();
+        int[] hacia = csr.getDestino();
+
+        // Recorremos todas las rutas del grafo
+        for (int e = 0; e < csr.getNumRutas(); e++) {
+            if (!csr.abierta(e)) continue;    // Si la ruta está cerrada, la ignoramos
+            int a = desde[e];                 // Extremo A (inicio)
+            int b = hacia[e];                 // Extremo B (destino)
+
+            // Clave ordenada para que {a,b} y {b,a} caigan en la misma entrada
+            long key = clavePareja(a, b, n);
+            double w = pesos[e];
+
+            // Si no hay nada guardado aún para este par o encontramos algo más barato, lo reemplazamos
+            Arista vieja = mapaAristas.get(key);
+            if (vieja == null || w < vieja.peso) {
+                mapaAristas.put(key, new Arista(a, b, csr.getRuta(e), w));
             }
         }
 
         //Se construyen las adyacencias para correr Prim más cómodo.
         // adj[X] = lista de aristas (no dirigidas) que tocan a la parada X.
-        Map<Parada, List<Arista>> adj = new HashMap<>();
+        List<List<Arista>> adj = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) adj.add(new ArrayList<>());
         for (Arista a : mapaAristas.values()) {
-            adj.computeIfAbsent(a.u, k -> new ArrayList<>()).add(a);
-            adj.computeIfAbsent(a.v, k -> new ArrayList<>()).add(a);
+            adj.get(a.u).add(a);
+            adj.get(a.v).add(a);
         }
 
         // Ejecutar Prim.
         // Estructuras que vamos a usar:
-        Set<Parada> visitadas = new HashSet<>(); // Paradas ya metidas al árbol
+        boolean[] visitadas = new boolean[n];    // Paradas ya metidas al árbol
+        int cantidadVisitadas = 0;
         List<Ruta> arbol = new ArrayList<>();    // Las rutas que van quedando dentro del MST
         double total = 0.0;                      // Suma de pesos (según el filtro)
 
         // Empezamos desde la primera parada, (puede ser cualquiera)
-        Parada inicio = paradas.get(0);
-        visitadas.add(inicio);
+        int inicio = 0;
+        visitadas[inicio] = true;
+        cantidadVisitadas++;
 
         // Cola de prioridad
         PriorityQueue<Arista> pq = new PriorityQueue<>(Comparator.comparingDouble(e -> e.peso));
         // Cargamos todas las aristas que salen del “inicio”
-        pq.addAll(adj.getOrDefault(inicio, Collections.emptyList()));
+        pq.addAll(adj.get(inicio));
 
         // Bucle principal de Prim:
         // Mientras haya aristas por considerar y no hayamos cubierto todas las paradas…
-        while (!pq.isEmpty() && visitadas.size() < paradas.size()) {
+        while (!pq.isEmpty() && cantidadVisitadas < n) {
             // Sacamos la arista con menor peso
             Arista e = pq.poll();
 
             // Determinamos a qué lado nuevo conecta esta arista
-            Parada otra = null;
+            int otra;
             // Caso 1: u ya está en el árbol y v aún no -> podemos crecer hacia v
-            if (visitadas.contains(e.u) && !visitadas.contains(e.v)) {
+            if (visitadas[e.u] && !visitadas[e.v]) {
                 otra = e.v;
             }
             // Caso 2: v ya está en el árbol y u aún no -> podemos crecer hacia u
-            else if (visitadas.contains(e.v) && !visitadas.contains(e.u)) {
+            else if (visitadas[e.v] && !visitadas[e.u]) {
                 otra = e.u;
             }
             // Caso 3: si ambos extremos ya estaban (o ninguno aplica), esta arista no sirve para crecer; pasamos
@@ -158,16 +159,17 @@ public class Prim {
             }
 
             // Agregamos la nueva parada al conjunto visitado
-            visitadas.add(otra);
+            visitadas[otra] = true;
+            cantidadVisitadas++;
             // Guardamos la Ruta original que representa esta arista dentro del árbol
             arbol.add(e.ruta);
             // Sumamos el peso de la arista
             total += e.peso;
 
             // Cargamos a la cola todas las aristas que salgan de otra y que lleven a paradas no visitadas
-            for (Arista sig : adj.getOrDefault(otra, Collections.emptyList())) {
-                Parada candidato = sig.u.equals(otra) ? sig.v : sig.u;
-                if (!visitadas.contains(candidato)) {
+            for (Arista sig : adj.get(otra)) {
+                int candidato = sig.u == otra ? sig.v : sig.u;
+                if (!visitadas[candidato]) {
                     pq.add(sig);
                 }
             }
@@ -176,7 +178,7 @@ public class Prim {
         // Se Verifica la conectividad.
         // Si no visitamos todas las paradas, significa que el grafo no es conexo
         // y por lo tanto no existe un MST que cubra a todos.
-        if (visitadas.size() != paradas.size()) {
+        if (cantidadVisitadas != n) {
             return null;
         }
 
@@ -186,30 +188,11 @@ public class Prim {
 
     /**
      * clavePareja
-     * Objetivo: generar una clave ordenada para el par de paradas (a, b),
+     * Objetivo: generar una clave ordenada para el par de índices (a, b),
      * de forma que clavePareja(a,b) == clavePareja(b,a).
      */
-    private String clavePareja(Parada a, Parada b) {
-        int ha = a.hashCode();
-        int hb = b.hashCode();
-        // Si ha <= hb: “ha<>hb”, si no, al revés. Así {a,b} y {b,a} caen en la misma llave.
-        return ha <= hb ? ha + "<>" + hb : hb + "<>" + ha;
-    }
-
-    /**
-     * pesoPorFiltro
-     * Objetivo: según el filtro elegido, devolver el valor correcto de la Ruta.
-     * - "distancia" -> getDistancia()
-     * - "tiempo"    -> getTiempo()
-     * - "costo"     -> getCosto()
-     * Si el filtro no es válido, lanzamos IllegalArgumentException para avisar.
-     */
-    private double pesoPorFiltro(Ruta r, String filtro) {
-        return switch (filtro.toLowerCase(Locale.ROOT)) {
-            case "distancia" -> r.getDistancia();
-            case "tiempo"    -> r.getTiempo();
-            case "costo"     -> r.getCosto();
-            default -> throw new IllegalArgumentException("Filtro inválido: " + filtro);
-        };
+    private long clavePareja(int a, int b, int n) {
+        // Si a <= b: “a*n+b”, si no, al revés. Así {a,b} y {b,a} caen en la misma llave.
+        return a <= b ? (long) a * n + b : (long) b * n + a;
     }
-}
\ No newline at end of file
+}
@@ -2,7 +2,7 @@ package models;
 
 public class Ruta {
 
-    private long id;
+    private volatile long id; // lo asigna el hilo de escritura (DataBase.EscrituraDiferida)
     private String nombre;
     private Parada inicio;
     private Parada destino;
@@ -14,10 +14,20 @@ public class Ruta {
     private boolean estado;
     private String evento;
     private String transbordo;
+    private int lineaNombre; // id de línea del nombre, por si ninguna de las paradas tiene tipo
 
+    // Grafo al que pertenece (para avisarle cuando se abre/cierra) e índice en su vista CSR
+    private Grafo grafo;
+    private int indice = -1;
 
     public Ruta(String nombre, Parada inicio, Parada destino, double distancia, double tiempo, double costo) {
+        this(nombre, inicio, destino, distancia, tiempo, costo, Lineas.idDe(nombre));
+    }
+
+    // Con la línea del nombre ya calculada (al leer una Instantanea)
+    Ruta(String nombre, Parada inicio, Parada destino, double distancia, double tiempo, double costo, int lineaNombre) {
         this.nombre = nombre;
+        this.lineaNombre = lineaNombre;
         this.inicio = inicio;
         this.destino = destino;
         this.distancia = distancia;
@@ -35,7 +45,24 @@ public class Ruta {
     public void setId(long id) { this.id = id; }
 
     public String getNombre() { return nombre; }
-    public void setNombre(String nombre) { this.nombre = nombre; }
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+        this.lineaNombre = Lineas.idDe(nombre);
+    }
+
+    /**
+     * getLinea
+     * Objetivo: línea del tramo: la del tipo de la parada de inicio; si no tiene, la del destino;
+     *           si tampoco, la del nombre de la ruta. Todo ya viene precalculado como enteros.
+     * Retorno: int (id de Lineas).
+     */
+    public int getLinea() {
+        if (inicio != null && inicio.getLinea() != Lineas.SIN_LINEA) return inicio.getLinea();
+        if (destino != null && destino.getLinea() != Lineas.SIN_LINEA) return destino.getLinea();
+        return lineaNombre;
+    }
+
+    int getLineaNombre() { return lineaNombre; }
 
     public Parada getInicio() { return inicio; }
     public void setInicio(Parada inicio) { this.inicio = inicio; }
@@ -53,7 +80,17 @@ public class Ruta {
     public void setCosto(double costo) { this.costo = costo; }
 
     public boolean isEstado() { return estado; }
-    public void setEstado(boolean estado) { this.estado = estado; }
+    public void setEstado(boolean estado) {
+        if (this.estado == estado) return;
+        this.estado = estado;
+        if (grafo != null) grafo.cambioEstadoRuta(this, estado); // mantiene el conteo de rutas cerradas
+    }
+
+    Grafo getGrafo() { return grafo; }
+    void setGrafo(Grafo grafo) { this.grafo = grafo; }
+
+    int getIndice() { return indice; }
+    void setIndice(int indice) { this.indice = indice; }
 
     public String getEvento() { return evento; }
     public void setEvento(String evento) { this.evento = evento; }
@@ -84,7 +121,7 @@ public class Ruta {
     public void resetValores() {
         this.tiempo = this.tiempoBase;
         this.costo = this.costoBase;
-        this.estado = true;
+        setEstado(true);
         this.evento = "Normal";
         this.transbordo = "No aplica";
     }
@@ -12,6 +12,7 @@ public class RutaMasCorta {
     private String filtro;
     private String evento;
     private int transbordos;
+    private Long semillaEscenario; // semilla del escenario simulado (null si no hubo simulación)
 
 
     public RutaMasCorta(List<Ruta> rutas,
@@ -66,6 +67,14 @@ public class RutaMasCorta {
         this.transbordos = transbordos;
     }
 
+    public Long getSemillaEscenario() {
+        return semillaEscenario;
+    }
+
+    public void setSemillaEscenario(Long semillaEscenario) {
+        this.semillaEscenario = semillaEscenario;
+    }
+
     @Override
     public String toString() {
         return "Filtro = " + filtro + "\n"
@@ -74,6 +83,7 @@ public class RutaMasCorta {
                 + "TotalCosto = " + totalCosto + "\n"
                 + "TotalDistancia = " + totalDistancia + "\n"
                 + "TotalPeso = " + totalPeso + "\n"
+                + "SemillaEscenario = " + semillaEscenario + "\n"
                 + "Rutas : " + rutas.toString() + "\n";
     }
 }
@@ -0,0 +1,269 @@
+package models;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Nombre de la clase: SimulacionMonteCarlo
+ *
+ * Objetivo:
+ * - Correr muchos escenarios de eventos independientes (accidente, accidente leve, retraso, lluvia)
+ *   para uno o varios pares origen/destino y devolver la distribución de tiempo y costo del mejor camino:
+ *   media, p50, p95 y probabilidad de quedarse sin ruta.
+ * - Los escenarios se reparten entre los núcleos. Cada uno tiene su propia semilla, sacada en orden
+ *   de una semilla raíz, así el resultado no depende de cómo se repartan los hilos.
+ *   La corrida k es el mismo escenario que Grafo.simularEscenario(semillas[k]) con la misma tabla de eventos.
+ *
+ * Nota:
+ * - No arma un Escenario por corrida: cada tramo de corridas reutiliza sus arreglos (eventos, pesos, distancias, cola)
+ *   y corre un Dijkstra por origen (Dijkstra.arbolHasta), que para cuando ya asentó todos sus destinos.
+ * - El filtro decide qué camino es el mejor; del camino elegido siempre medimos tiempo y costo.
+ */
+public class SimulacionMonteCarlo {
+
+    public static final double INFINITO = Double.POSITIVE_INFINITY;
+
+    /**
+     * Clase Par
+     * Propósito: un viaje a simular (origen y destino).
+     */
+    public static class Par {
+        public final Parada inicio;
+        public final Parada destino;
+
+        public Par(Parada inicio, Parada destino) {
+            this.inicio = inicio;
+            this.destino = destino;
+        }
+    }
+
+    /**
+     * Clase Estadistica
+     * Propósito: resumen de una muestra (solo de los escenarios donde hubo ruta).
+     */
+    public static class Estadistica {
+        public final double media;
+        public final double p50;
+        public final double p95;
+        public final double minimo;
+        public final double maximo;
+
+        Estadistica(double[] muestra, int cantidad) {
+            if (cantidad == 0) {
+                media = p50 = p95 = minimo = maximo = Double.NaN;
+                return;
+            }
+            Arrays.sort(muestra, 0, cantidad);
+            double suma = 0;
+            for (int i = 0; i < cantidad; i++) suma += muestra[i];
+            media = suma / cantidad;
+            p50 = percentil(muestra, cantidad, 0.50);
+            p95 = percentil(muestra, cantidad, 0.95);
+            minimo = muestra[0];
+            maximo = muestra[cantidad - 1];
+        }
+
+        // Percentil por rango más cercano sobre la muestra ya ordenada
+        private static double percentil(double[] ordenada, int cantidad, double p) {
+            int k = (int) Math.ceil(p * cantidad) - 1;
+            return ordenada[Math.max(0, Math.min(cantidad - 1, k))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "media=%.2f p50=%.2f p95=%.2f min=%.2f max=%.2f", media, p50, p95, minimo, maximo);
+        }
+    }
+
+    /**
+     * Clase Resultado
+     * Propósito: distribuciones de un par después de todas las corridas.
+     */
+    public static class Resultado {
+        public final Par par;
+        public final int escenarios;
+        public final int sinRuta;                 // corridas en las que no hubo camino
+        public final double probabilidadSinRuta;
+        public final Estadistica tiempo;
+        public final Estadistica costo;
+
+        Resultado(Par par, int escenarios, int sinRuta, Estadistica tiempo, Estadistica costo) {
+            this.par = par;
+            this.escenarios = escenarios;
+            this.sinRuta = sinRuta;
+            this.probabilidadSinRuta = escenarios == 0 ? 0 : (double) sinRuta / escenarios;
+            this.tiempo = tiempo;
+            this.costo = costo;
+        }
+
+        @Override
+        public String toString() {
+            return par.inicio + " -> " + par.destino + " | escenarios=" + escenarios
+                    + " sinRuta=" + String.format(Locale.ROOT, "%.4f", probabilidadSinRuta)
+                    + "\n  tiempo: " + tiempo + "\n  costo: " + costo;
+        }
+    }
+
+    /**
+     * Buffers de un tramo de corridas: eventos y pesos de la corrida, más los de la búsqueda.
+     */
+    private static class Buffers {
+        final byte[] evento;
+        final double[] pesos;
+        final Dijkstra.Buffers arbol;
+
+        Buffers(int n, int m) {
+            evento = new byte[m];
+            pesos = new double[m];
+            arbol = new Dijkstra.Buffers(n);
+        }
+    }
+
+    /**
+     * simular
+     * Objetivo: atajo para un solo par origen/destino.
+     * Retorno: Resultado.
+     */
+    public static Resultado simular(Grafo grafo, Parada inicio, Parada destino, String filtro, int escenarios, long semilla) {
+        return simular(grafo, List.of(new Par(inicio, destino)), filtro, escenarios, semilla).get(0);
+    }
+
+    /**
+     * simular
+     * Objetivo: varios pares con la tabla de eventos que tenga configurada el grafo.
+     * Retorno: List<Resultado> en el mismo orden que los pares.
+     */
+    public static List<Resultado> simular(Grafo grafo, List<Par> pares, String filtro, int escenarios, long semilla) {
+        if (grafo == null) throw new IllegalArgumentException("grafo no puede ser null");
+        return simular(grafo, pares, filtro, escenarios, semilla, grafo.getTablaEventos());
+    }
+
+    /**
+     * simular
+     * Objetivo: correr "escenarios" corridas en paralelo. En cada corrida se sortea un evento por ruta,
+     *           se arman los pesos del filtro y se busca el mejor camino de cada par (un Dijkstra por origen distinto).
+     *           Con la misma semilla y el mismo grafo el resultado es siempre el mismo.
+     * Retorno: List<Resultado> en el mismo orden que los pares.
+     */
+    public static List<Resultado> simular(Grafo grafo, List<Par> pares, String filtro, int escenarios, long semilla,
+                                          TablaEventos tabla) {
+        if (grafo == null || pares == null || filtro == null || filtro.isBlank() || tabla == null) {
+            throw new IllegalArgumentException("grafo/pares/filtro/tabla no pueden ser null");
+        }
+        if (escenarios <= 0) throw new IllegalArgumentException("La cantidad de escenarios debe ser positiva");
+
+        // Foto consistente de la red: vista CSR y rutas cerradas del grafo
+        Escenario base = grafo.getEscenarioActual();
+        GrafoCSR csr = base.getCSR();
+        BitSet cerradasGrafo = base.cerradas();
+        int n = csr.getNumParadas();
+        int m = csr.getNumRutas();
+        double[] pesosBase = csr.pesos(filtro);
+        String f = filtro.toLowerCase(Locale.ROOT);
+        double[] factorFiltro = f.equals("tiempo") ? Escenario.FACTOR_TIEMPO
+                : f.equals("costo") ? Escenario.FACTOR_COSTO : null; // la distancia no cambia con eventos
+
+        // Agrupar los pares por origen para correr un solo Dijkstra por origen
+        int p = pares.size();
+        int[] origenPar = new int[p];
+        int[] destinoPar = new int[p];
+        Map<Integer, List<Integer>> paresPorOrigen = new LinkedHashMap<>();
+        for (int i = 0; i < p; i++) {
+            Par par = pares.get(i);
+            origenPar[i] = csr.indiceDe(par.inicio);
+            destinoPar[i] = csr.indiceDe(par.destino);
+            if (origenPar[i] >= 0 && destinoPar[i] >= 0) {
+                paresPorOrigen.computeIfAbsent(origenPar[i], k -> new ArrayList<>()).add(i);
+            }
+        }
+        int[][] grupos = new int[paresPorOrigen.size()][];
+        int g = 0;
+        for (List<Integer> grupo : paresPorOrigen.values()) {
+            grupos[g++] = grupo.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Una semilla por escenario, sacadas en orden de la semilla raíz
+        SplittableRandom raiz = new SplittableRandom(semilla);
+        long[] semillas = new long[escenarios];
+        for (int k = 0; k < escenarios; k++) semillas[k] = raiz.nextLong();
+
+        // Muestras: [par][escenario], NaN = sin ruta en esa corrida
+        double[][] tiempos = new double[p][escenarios];
+        double[][] costos = new double[p][escenarios];
+        for (int i = 0; i < p; i++) {
+            Arrays.fill(tiempos[i], Double.NaN);
+            Arrays.fill(costos[i], Double.NaN);
+        }
+
+        // Destinos de cada grupo: la búsqueda del origen para cuando los asentó a todos
+        BitSet[] objetivos = new BitSet[grupos.length];
+        for (int j = 0; j < grupos.length; j++) {
+            objetivos[j] = new BitSet(n);
+            for (int i : grupos[j]) objetivos[j].set(destinoPar[i]);
+        }
+
+        // Las corridas se reparten en tramos; cada tramo pide sus buffers y los suelta al terminar
+        int tramos = Math.min(escenarios, 4 * ForkJoinPool.getCommonPoolParallelism());
+        IntStream.range(0, tramos).parallel().forEach(tramo -> {
+            int desde = (int) ((long) escenarios * tramo / tramos);
+            int hasta = (int) ((long) escenarios * (tramo + 1) / tramos);
+            Buffers b = new Buffers(n, m);
+            IntPredicate cerrada = e -> b.evento[e] == Escenario.ACCIDENTE_GRAVE || cerradasGrafo.get(e);
+            for (int k = desde; k < hasta; k++) {
+                Escenario.sortearEventos(csr, semillas[k], tabla, b.evento);
+                for (int e = 0; e < m; e++) {
+                    b.pesos[e] = factorFiltro == null ? pesosBase[e] : pesosBase[e] * factorFiltro[b.evento[e]];
+                }
+
+                for (int j = 0; j < grupos.length; j++) {
+                    int origen = origenPar[grupos[j][0]];
+                    Dijkstra.arbolHasta(csr, b.pesos, cerrada, origen, objetivos[j], b.arbol);
+
+                    for (int i : grupos[j]) {
+                        int t = destinoPar[i];
+                        if (t == origen) { // Ya está en el destino: viaje de 0, no "sin ruta"
+                            tiempos[i][k] = 0;
+                            costos[i][k] = 0;
+                            continue;
+                        }
+                        if (b.arbol.dist[t] == INFINITO) continue;
+                        // Medimos tiempo y costo del camino elegido recorriéndolo hacia atrás
+                        double tiempo = 0, costo = 0;
+                        for (int v = t; v != origen; ) {
+                            int e = b.arbol.rutaPrev[v];
+                            tiempo += csr.getTiempo()[e] * Escenario.FACTOR_TIEMPO[b.evento[e]];
+                            costo += csr.getCosto()[e] * Escenario.FACTOR_COSTO[b.evento[e]];
+                            v = csr.getOrigen()[e];
+                        }
+                        tiempos[i][k] = tiempo;
+                        costos[i][k] = costo;
+                    }
+                }
+            }
+        });
+
+        List<Resultado> resultados = new ArrayList<>(p);
+        for (int i = 0; i < p; i++) {
+            int conRuta = compactar(tiempos[i]);
+            compactar(costos[i]);
+            resultados.add(new Resultado(pares.get(i), escenarios, escenarios - conRuta,
+                    new Estadistica(tiempos[i], conRuta), new Estadistica(costos[i], conRuta)));
+        }
+        return resultados;
+    }
+
+    /**
+     * compactar
+     * Objetivo: mover al principio los valores que no son NaN (corridas con ruta).
+     * Retorno: int con la cantidad de valores válidos.
+     */
+    private static int compactar(double[] muestra) {
+        int j = 0;
+        for (double x : muestra) {
+            if (!Double.isNaN(x)) muestra[j++] = x;
+        }
+        return j;
+    }
+}
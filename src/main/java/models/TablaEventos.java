@@ -0,0 +1,79 @@
+package models;
+
+import java.util.Locale;
+
+/**
+ * Nombre de la clase: TablaEventos
+ *
+ * Objetivo:
+ * - Guardar la probabilidad de cada evento que puede caerle a una ruta en una simulación
+ *   (accidente grave, accidente leve, retraso, lluvia); lo que sobra es "Normal".
+ * - Sortear el evento de una ruta a partir de un número uniforme (ver Escenario.sortearEventos), así con
+ *   la misma semilla y la misma tabla siempre sale el mismo escenario.
+ *
+ * Nota:
+ * - Es inmutable. POR_DEFECTO tiene las probabilidades de siempre: 5% / 10% / 15% / 10%.
+ */
+public final class TablaEventos {
+
+    public static final TablaEventos POR_DEFECTO = new TablaEventos(0.05, 0.10, 0.15, 0.10);
+
+    private final double accidenteGrave;
+    private final double accidenteLeve;
+    private final double retraso;
+    private final double lluvia;
+
+    // Probabilidades acumuladas en el orden en que se revisan
+    private final double hastaGrave;
+    private final double hastaLeve;
+    private final double hastaRetraso;
+    private final double hastaLluvia;
+
+    /**
+     * TablaEventos
+     * Objetivo: validar que cada probabilidad esté entre 0 y 1 y que entre todas no pasen de 1.
+     * Retorno: ninguno.
+     */
+    public TablaEventos(double accidenteGrave, double accidenteLeve, double retraso, double lluvia) {
+        for (double p : new double[]{accidenteGrave, accidenteLeve, retraso, lluvia}) {
+            if (!(p >= 0 && p <= 1)) throw new IllegalArgumentException("Probabilidad inválida: " + p);
+        }
+        if (accidenteGrave + accidenteLeve + retraso + lluvia > 1 + 1e-9) {
+            throw new IllegalArgumentException("Las probabilidades de los eventos suman más de 1");
+        }
+        this.accidenteGrave = accidenteGrave;
+        this.accidenteLeve = accidenteLeve;
+        this.retraso = retraso;
+        this.lluvia = lluvia;
+
+        hastaGrave = accidenteGrave;
+        hastaLeve = hastaGrave + accidenteLeve;
+        hastaRetraso = hastaLeve + retraso;
+        hastaLluvia = hastaRetraso + lluvia;
+    }
+
+    public double getAccidenteGrave() { return accidenteGrave; }
+    public double getAccidenteLeve() { return accidenteLeve; }
+    public double getRetraso() { return retraso; }
+    public double getLluvia() { return lluvia; }
+    public double getNormal() { return Math.max(0, 1 - hastaLluvia); }
+
+    /**
+     * sortear
+     * Objetivo: elegir el evento de una ruta con un número uniforme en [0, 1).
+     * Retorno: byte con el código del evento (ver Escenario).
+     */
+    byte sortear(double u) {
+        if (u < hastaGrave) return Escenario.ACCIDENTE_GRAVE;
+        if (u < hastaLeve) return Escenario.ACCIDENTE_LEVE;
+        if (u < hastaRetraso) return Escenario.RETRASO;
+        if (u < hastaLluvia) return Escenario.LLUVIA;
+        return Escenario.NORMAL;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "grave=%.3f leve=%.3f retraso=%.3f lluvia=%.3f normal=%.3f",
+                accidenteGrave, accidenteLeve, retraso, lluvia, getNormal());
+    }
+}